@@ -6,6 +6,7 @@ plugins {
     kotlin("jvm") version embeddedKotlinVersion apply false
     `java-library`
     application
+    id("me.champeau.jmh") version "0.7.2"
 }
 
 val gradleEnterpriseVersion = "2022.2.4" // Must be later than 2022.1
@@ -29,7 +30,7 @@ swaggerSources.configureEach {
 
         language = "java"
         inputFile = apiSpecificationFile.get()
-        configFile = file("openapi/openapi-generator-config.json")
+        configFile = file(if (name == "asyncClient") "openapi/openapi-generator-async-config.json" else "openapi/openapi-generator-config.json")
         outputDir = file("${buildDir}/generated/$name")
     }
 
@@ -71,6 +72,18 @@ val client = swaggerSources.register("client") {
     )
 }
 
+val asyncClient = swaggerSources.register("asyncClient") {
+    code.components = mapOf(
+        "apis" to true,
+        "apiTests" to false,
+        "modelTests" to false,
+        "apiDocs" to false,
+        "modelDocs" to false,
+        "models" to false,
+        "log.level" to "error"
+    )
+}
+
 repositories {
     mavenCentral()
 }
@@ -89,11 +102,19 @@ dependencies {
             requireCapability("com.gradle.enterprise.api:${project.name}-client")
         }
     }
+    implementation(project(project.path)) {
+        capabilities {
+            requireCapability("com.gradle.enterprise.api:${project.name}-async-client")
+        }
+    }
 
     implementation("ch.qos.logback:logback-core:1.2.3")
     implementation("ch.qos.logback:logback-classic:1.2.3")
     implementation("org.slf4j:slf4j-api:1.7.30")
 
+    testImplementation("org.junit.jupiter:junit-jupiter:5.10.2")
+    testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
     add("swaggerCodegen", "org.openapitools:openapi-generator-cli:5.4.0")
 
     add(sourceSets[client.get().name].implementationConfigurationName, project(":") as ModuleDependency) {
@@ -101,10 +122,63 @@ dependencies {
             requireCapability("com.gradle.enterprise.api:${project.name}-model")
         }
     }
+    add(sourceSets[asyncClient.get().name].implementationConfigurationName, project(":") as ModuleDependency) {
+        capabilities {
+            requireCapability("com.gradle.enterprise.api:${project.name}-model")
+        }
+    }
+    add(sourceSets[asyncClient.get().name].implementationConfigurationName, project(":") as ModuleDependency) {
+        capabilities {
+            requireCapability("com.gradle.enterprise.api:${project.name}-client")
+        }
+    }
 }
 
 java {
     toolchain {
-        languageVersion.set(JavaLanguageVersion.of(11))
+        languageVersion.set(JavaLanguageVersion.of(21))
     }
 }
+
+tasks.test {
+    useJUnitPlatform()
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    profilers.add("gc")
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results.json"))
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes.add(it) }
+}
+
+val jmhBaselineFile = layout.projectDirectory.file("src/jmh/baseline/results.json")
+
+tasks.register<Copy>("jmhSaveBaseline") {
+    description = "Saves the results of the last jmh run as the baseline to compare later runs with."
+    from(jmh.resultsFile)
+    into(jmhBaselineFile.asFile.parentFile)
+}
+
+tasks.register<JavaExec>("jmhCompare") {
+    description = "Compares the results of the last jmh run with the saved baseline."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.gradle.enterprise.summary.benchmark.BaselineComparison")
+    args(jmhBaselineFile.asFile.path, jmh.resultsFile.get().asFile.path)
+}
+
+tasks.register<JavaExec>("stubServer") {
+    description = "Runs a stand-in for the Gradle Enterprise API serving generated builds, configured by -PstubServerArgs."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.gradle.enterprise.summary.benchmark.StubServer")
+    args(providers.gradleProperty("stubServerArgs").getOrElse("").split(" ").filter { it.isNotBlank() })
+}
+
+tasks.register<JavaExec>("endToEndBenchmark") {
+    description = "Runs the program against the stub server and reports its throughput, configured by -PendToEndArgs."
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.gradle.enterprise.summary.benchmark.EndToEndBenchmark")
+    args(providers.gradleProperty("endToEndArgs").getOrElse("").split(" ").filter { it.isNotBlank() })
+    workingDir = layout.buildDirectory.dir("end-to-end").get().asFile
+    doFirst { workingDir.mkdirs() }
+}
@@ -0,0 +1,86 @@
+package com.gradle.enterprise.summary.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares the JMH results of a run with a saved baseline, printing the change of the score
+ * and of the bytes allocated per operation of every benchmark in both.
+ */
+public final class BaselineComparison {
+    private static final String ALLOCATION_METRIC = "gc.alloc.rate.norm";
+
+    private BaselineComparison() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BaselineComparison <baseline.json> <results.json>");
+            System.exit(2);
+        }
+        File baselineFile = new File(args[0]);
+        if (!baselineFile.isFile()) {
+            System.err.println("No baseline at " + baselineFile + ", save one with the jmhSaveBaseline task");
+            System.exit(1);
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> baseline = byBenchmark(mapper.readTree(baselineFile));
+        Map<String, JsonNode> results = byBenchmark(mapper.readTree(new File(args[1])));
+
+        System.out.printf("%-60s %14s %14s %8s %12s %12s %8s%n", "Benchmark", "Baseline", "Score", "Change", "Baseline B/op", "B/op", "Change");
+        for (Map.Entry<String, JsonNode> result : results.entrySet()) {
+            JsonNode before = baseline.get(result.getKey());
+            if (before == null) {
+                System.out.printf("%-60s %14s%n", result.getKey(), "new");
+                continue;
+            }
+            double scoreBefore = before.path("primaryMetric").path("score").asDouble();
+            double score = result.getValue().path("primaryMetric").path("score").asDouble();
+            double allocatedBefore = allocation(before);
+            double allocated = allocation(result.getValue());
+            System.out.printf("%-60s %14.3f %14.3f %7.1f%% %12.0f %12.0f %7.1f%%%n",
+                result.getKey(), scoreBefore, score, change(scoreBefore, score), allocatedBefore, allocated, change(allocatedBefore, allocated));
+        }
+    }
+
+    private static Map<String, JsonNode> byBenchmark(JsonNode results) {
+        Map<String, JsonNode> byBenchmark = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            String benchmark = result.path("benchmark").asText();
+            // Class and method name, without the package
+            StringBuilder key = new StringBuilder(benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1));
+            Iterator<Map.Entry<String, JsonNode>> params = result.path("params").fields();
+            while (params.hasNext()) {
+                Map.Entry<String, JsonNode> param = params.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+            byBenchmark.put(key.toString(), result);
+        }
+        return byBenchmark;
+    }
+
+    /**
+     * @return the bytes allocated per operation, or {@code NaN} when the run was not profiled with {@code gc}
+     */
+    private static double allocation(JsonNode result) {
+        Iterator<Map.Entry<String, JsonNode>> metrics = result.path("secondaryMetrics").fields();
+        while (metrics.hasNext()) {
+            Map.Entry<String, JsonNode> metric = metrics.next();
+            if (metric.getKey().endsWith(ALLOCATION_METRIC)) {
+                return metric.getValue().path("score").asDouble();
+            }
+        }
+        return Double.NaN;
+    }
+
+    private static double change(double before, double after) {
+        return (after - before) / before * 100;
+    }
+}
@@ -0,0 +1,230 @@
+package com.gradle.enterprise.summary.benchmark;
+
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.SplittableRandom;
+
+/**
+ * Generates builds with the shape of real ones, as the JSON the API responds with:
+ * projects with modules that each run the usual tasks or goals, most of which are avoided,
+ * with log-normally distributed durations.
+ * <p>
+ * Every part of a build is generated from its own seed, so the same build is generated again
+ * whichever parts were generated before and in which order.
+ */
+final class BuildGenerator {
+    private static final int PROJECTS = 20;
+    private static final int USERS = 50;
+
+    private static final String[][] TASKS = {
+        {"compileJava", "org.gradle.api.tasks.compile.JavaCompile"},
+        {"compileTestJava", "org.gradle.api.tasks.compile.JavaCompile"},
+        {"compileKotlin", "org.jetbrains.kotlin.gradle.tasks.KotlinCompile"},
+        {"processResources", "org.gradle.language.jvm.tasks.ProcessResources"},
+        {"processTestResources", "org.gradle.language.jvm.tasks.ProcessResources"},
+        {"classes", "org.gradle.api.DefaultTask"},
+        {"testClasses", "org.gradle.api.DefaultTask"},
+        {"jar", "org.gradle.api.tasks.bundling.Jar"},
+        {"sourcesJar", "org.gradle.api.tasks.bundling.Jar"},
+        {"javadoc", "org.gradle.api.tasks.javadoc.Javadoc"},
+        {"test", "org.gradle.api.tasks.testing.Test"},
+        {"checkstyleMain", "org.gradle.api.plugins.quality.Checkstyle"},
+        {"pmdMain", "org.gradle.api.plugins.quality.Pmd"},
+        {"generateProto", "com.google.protobuf.gradle.GenerateProtoTask"},
+        {"assemble", "org.gradle.api.DefaultTask"},
+        {"check", "org.gradle.api.DefaultTask"},
+        {"build", "org.gradle.api.DefaultTask"},
+    };
+    private static final String[][] GOALS = {
+        {"maven-resources-plugin:resources", "org.apache.maven.plugins.resources.ResourcesMojo"},
+        {"maven-compiler-plugin:compile", "org.apache.maven.plugin.compiler.CompilerMojo"},
+        {"maven-resources-plugin:testResources", "org.apache.maven.plugins.resources.TestResourcesMojo"},
+        {"maven-compiler-plugin:testCompile", "org.apache.maven.plugin.compiler.TestCompilerMojo"},
+        {"maven-surefire-plugin:test", "org.apache.maven.plugin.surefire.SurefirePlugin"},
+        {"maven-jar-plugin:jar", "org.apache.maven.plugins.jar.JarMojo"},
+        {"maven-source-plugin:jar-no-fork", "org.apache.maven.plugins.source.SourceJarNoForkMojo"},
+        {"maven-checkstyle-plugin:check", "org.apache.maven.plugins.checkstyle.CheckstyleViolationCheckMojo"},
+    };
+    // Outcomes with their share in percent, most work is avoided in a build with a warm cache
+    private static final Object[][] TASK_OUTCOMES = {
+        {"avoided_up_to_date", 40}, {"avoided_from_local_cache", 12}, {"avoided_from_remote_cache", 15},
+        {"executed_cacheable", 10}, {"executed_not_cacheable", 10}, {"executed_unknown_cacheability", 2},
+        {"lifecycle", 6}, {"no-source", 3}, {"skipped", 2},
+    };
+    private static final Object[][] GOAL_OUTCOMES = {
+        {"avoided_from_local_cache", 35}, {"avoided_from_remote_cache", 20}, {"executed_cacheable", 20},
+        {"executed_not_cacheable", 22}, {"executed_unknown_cacheability", 3},
+    };
+    private static final String[] TASK_NON_CACHEABILITY_CATEGORIES = {
+        "overlapping_outputs", "disabled_to_ensure_correctness", "non_cacheable_class", "task_has_no_actions", "unknown",
+    };
+    private static final String[] GOAL_NON_CACHEABILITY_CATEGORIES = {
+        "caching_disabled", "non_cacheable_goal", "unknown",
+    };
+
+    private static final int BUILD = 0;
+    private static final int ATTRIBUTES = 1;
+    private static final int MODEL = 2;
+    private static final int SIZE = 3;
+
+    private final JsonNodeFactory nodes = JsonNodeFactory.instance;
+    private final long seed;
+
+    BuildGenerator(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * @return the id of the build, which sorts the same way as the index
+     */
+    static String id(int index) {
+        return Long.toString(0x1000000000000L + index, 36);
+    }
+
+    /**
+     * @return the index of the build with the id, or -1 if it is not the id of a generated build
+     */
+    static int index(String id) {
+        try {
+            long index = Long.parseLong(id, 36) - 0x1000000000000L;
+            return index >= 0 && index <= Integer.MAX_VALUE ? (int) index : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return {@code maven} for the given percentage of the builds, {@code gradle} for the others
+     */
+    String tool(int index, int mavenPercentage) {
+        return random(index, BUILD).nextInt(100) < mavenPercentage ? "maven" : "gradle";
+    }
+
+    /**
+     * @return the number of tasks or goals of the build, uniformly distributed between the bounds
+     */
+    int workUnits(int index, int min, int max) {
+        return min + random(index, SIZE).nextInt(Math.max(max - min, 0) + 1);
+    }
+
+    ObjectNode build(int index, long availableAt, String tool) {
+        return nodes.objectNode()
+            .put("id", id(index))
+            .put("availableAt", availableAt)
+            .put("buildToolType", tool)
+            .put("buildToolVersion", tool.equals("gradle") ? "7.5" : "3.8.6")
+            .put("buildAgentVersion", "3.11");
+    }
+
+    ObjectNode gradleAttributes(int index, long availableAt) {
+        return attributes(index, availableAt, "rootProjectName");
+    }
+
+    ObjectNode mavenAttributes(int index, long availableAt) {
+        return attributes(index, availableAt, "topLevelProjectName");
+    }
+
+    ObjectNode gradleModel(int index, int tasks) {
+        SplittableRandom random = random(index, MODEL);
+        ObjectNode model = cacheModel(random, index);
+        ArrayNode taskExecution = model.putArray("taskExecution");
+        for (int i = 0; i < tasks; i++) {
+            String[] task = TASKS[i % TASKS.length];
+            String outcome = outcome(random, TASK_OUTCOMES);
+            ObjectNode entry = taskExecution.addObject()
+                .put("taskPath", ":module-" + i / TASKS.length + ":" + task[0])
+                .put("taskType", task[1])
+                .put("avoidanceOutcome", outcome)
+                .put("duration", duration(random, 6, 1.5))
+                .put("fingerprintingDuration", duration(random, 2, 1));
+            if (outcome.startsWith("avoided")) {
+                entry.put("avoidanceSavings", duration(random, 6, 1.5));
+            }
+            if (outcome.equals("executed_not_cacheable")) {
+                entry.put("nonCacheabilityCategory", pick(random, TASK_NON_CACHEABILITY_CATEGORIES));
+            }
+        }
+        model.put("effectiveTaskExecutionTime", duration(random, 11, 1));
+        return model;
+    }
+
+    ObjectNode mavenModel(int index, int goals) {
+        SplittableRandom random = random(index, MODEL);
+        ObjectNode model = cacheModel(random, index);
+        ArrayNode goalExecution = model.putArray("goalExecution");
+        for (int i = 0; i < goals; i++) {
+            String[] goal = GOALS[i % GOALS.length];
+            String outcome = outcome(random, GOAL_OUTCOMES);
+            ObjectNode entry = goalExecution.addObject()
+                .put("mojoType", goal[1])
+                .put("goalName", goal[0])
+                .put("goalExecutionId", "default-" + goal[0].substring(goal[0].indexOf(':') + 1))
+                .put("goalProjectName", "module-" + i / GOALS.length)
+                .put("avoidanceOutcome", outcome)
+                .put("duration", duration(random, 6, 1.5));
+            if (outcome.startsWith("avoided")) {
+                entry.put("avoidanceSavings", duration(random, 6, 1.5));
+            }
+            if (outcome.equals("executed_not_cacheable")) {
+                entry.put("nonCacheabilityCategory", pick(random, GOAL_NON_CACHEABILITY_CATEGORIES));
+            }
+        }
+        model.put("effectiveProjectExecutionTime", duration(random, 11, 1));
+        return model;
+    }
+
+    private ObjectNode attributes(int index, long availableAt, String projectNameField) {
+        SplittableRandom random = random(index, ATTRIBUTES);
+        long duration = duration(random, 11, 1);
+        ObjectNode attributes = nodes.objectNode()
+            .put("id", id(index))
+            .put("buildStartTime", availableAt - duration)
+            .put("buildDuration", duration)
+            .put(projectNameField, "project-" + random.nextInt(PROJECTS))
+            .put("hasFailed", random.nextInt(10) == 0);
+        attributes.putObject("environment").put("username", "user-" + random.nextInt(USERS));
+        attributes.putArray("tags").add(random.nextInt(10) < 7 ? "CI" : "local");
+        return attributes;
+    }
+
+    private ObjectNode cacheModel(SplittableRandom random, int index) {
+        ObjectNode model = nodes.objectNode()
+            .put("id", id(index))
+            .put("buildTime", duration(random, 11, 1));
+        model.putObject("avoidanceSavingsSummary")
+            .put("total", duration(random, 10, 1))
+            .put("ratio", random.nextDouble())
+            .put("upToDate", duration(random, 9, 1))
+            .put("localBuildCache", duration(random, 9, 1))
+            .put("remoteBuildCache", duration(random, 9, 1));
+        return model;
+    }
+
+    private SplittableRandom random(int index, int part) {
+        return new SplittableRandom(seed * 1_000_003L + index * 4L + part);
+    }
+
+    private static String outcome(SplittableRandom random, Object[][] outcomes) {
+        int percent = random.nextInt(100);
+        for (Object[] outcome : outcomes) {
+            percent -= (Integer) outcome[1];
+            if (percent < 0) {
+                return (String) outcome[0];
+            }
+        }
+        return (String) outcomes[outcomes.length - 1][0];
+    }
+
+    private static String pick(SplittableRandom random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    /**
+     * @return a log-normally distributed duration in milliseconds, whose median is {@code e^mu}
+     */
+    private static long duration(SplittableRandom random, double mu, double sigma) {
+        return (long) Math.exp(mu + sigma * random.nextGaussian());
+    }
+}
@@ -0,0 +1,75 @@
+package com.gradle.enterprise.summary.benchmark;
+
+import com.gradle.enterprise.summary.accumulator.PooledSummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The number of builds several threads add to the same summaries per second, the way the build processors do.
+ * Compared with {@link IngestionBenchmark}, this shows what the threads lose to each other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class ContendedIngestionBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    int workUnitsPerBuild;
+
+    private SyntheticBuilds builds;
+    private PooledSummaryAccumulators summaries;
+
+    @Setup(Level.Trial)
+    public void generateBuilds() {
+        builds = new SyntheticBuilds(IngestionBenchmark.BUILDS, workUnitsPerBuild, 42);
+    }
+
+    @Setup(Level.Iteration)
+    public void createSummaries() {
+        summaries = new PooledSummaryAccumulators(SummarySettings.defaults());
+    }
+
+    @Benchmark
+    public PooledSummaryAccumulators addGradleBuild(Cursor cursor) {
+        builds.addGradleBuild(summaries, cursor.next(builds.size()));
+        return summaries;
+    }
+
+    @Benchmark
+    public PooledSummaryAccumulators addMavenBuild(Cursor cursor) {
+        builds.addMavenBuild(summaries, cursor.next(builds.size()));
+        return summaries;
+    }
+
+    /**
+     * The build each thread adds next, so the threads do not share a counter.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        int next(int size) {
+            int index = next;
+            next = (next + 1) % size;
+            return index;
+        }
+    }
+}
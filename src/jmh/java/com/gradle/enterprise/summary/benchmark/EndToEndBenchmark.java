@@ -0,0 +1,87 @@
+package com.gradle.enterprise.summary.benchmark;
+
+import com.gradle.enterprise.summary.SummaryMain;
+import picocli.CommandLine;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the program against a {@link StubServer} in the same JVM and reports the builds processed per second,
+ * the latency of the server and the peak heap usage.
+ * <p>
+ * The stub server keeps no builds, so the heap is taken by the program and the garbage of both.
+ * The peak is the highest heap usage sampled every {@link #HEAP_SAMPLE_INTERVAL_MILLIS} ms.
+ */
+@CommandLine.Command(
+    name = "end-to-end-benchmark",
+    mixinStandardHelpOptions = true,
+    description = "Runs the program against a stub server and reports its throughput",
+    usageHelpAutoWidth = true
+)
+public class EndToEndBenchmark implements Callable<Integer> {
+    private static final long HEAP_SAMPLE_INTERVAL_MILLIS = 10;
+
+    @CommandLine.Mixin
+    StubServer server;
+
+    @CommandLine.Parameters(description = "The options passed on to the program, after --, e.g. -- --concurrency 64 --executor virtual")
+    List<String> programOptions = new ArrayList<>();
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new EndToEndBenchmark()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        int port = server.start();
+        Path accessKeyFile = Files.createTempFile("stub-access-key", ".txt");
+        Files.writeString(accessKeyFile, "stub");
+
+        List<String> args = new ArrayList<>();
+        args.add("--server-url=http://localhost:" + port);
+        args.add("--access-key-file=" + accessKeyFile);
+        args.add("--hours=" + server.getHours());
+        args.addAll(programOptions);
+
+        // The peaks of the heap pools are reached at different times, so their sum would overstate the peak of the heap
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        AtomicLong peakHeap = new AtomicLong();
+        ScheduledExecutorService heapSampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "heap-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        System.gc();
+        heapSampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+            0, HEAP_SAMPLE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+
+        SummaryMain program = new SummaryMain();
+        int exitCode;
+        long start = System.nanoTime();
+        try {
+            exitCode = new CommandLine(program).setCaseInsensitiveEnumValuesAllowed(true).execute(args.toArray(new String[0]));
+        } finally {
+            heapSampler.shutdownNow();
+            server.stop();
+            Files.deleteIfExists(accessKeyFile);
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long processed = program.getBuildsProcessedSuccessfully();
+
+        System.out.println();
+        System.out.printf("End to end | %d of %d builds processed in %.1f s | %.1f builds/sec | peak heap %.0f MB%n",
+            processed, server.getBuilds(), seconds, processed / seconds, peakHeap.get() / 1024.0 / 1024.0);
+        server.printStatistics();
+        return exitCode;
+    }
+}
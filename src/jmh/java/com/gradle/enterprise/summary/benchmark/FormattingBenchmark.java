@@ -0,0 +1,79 @@
+package com.gradle.enterprise.summary.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonWriteFeature;
+import com.gradle.enterprise.summary.StreamTransform;
+import com.gradle.enterprise.summary.SummaryMain;
+import com.gradle.enterprise.summary.accumulator.SummaryAccumulator;
+import com.gradle.enterprise.summary.accumulator.SummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time it takes to format the summaries of a few hundred builds the way they are written to the output files,
+ * into a stream that discards them so that only the formatting is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormattingBenchmark {
+    private static final int BUILDS = 200;
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+        .enable(JsonWriteFeature.WRITE_NUMBERS_AS_STRINGS)
+        .build();
+
+    @Param({"10", "1000"})
+    int workUnitsPerBuild;
+
+    @Param({"false", "true"})
+    boolean formatDuration;
+
+    private final List<StreamTransform<?>> transforms = SummaryMain.getTransforms(10);
+    private SummaryAccumulators summaries;
+
+    @Setup(Level.Trial)
+    public void addBuilds() {
+        SyntheticBuilds builds = new SyntheticBuilds(BUILDS, workUnitsPerBuild, 42);
+        summaries = new SummaryAccumulators(SummarySettings.defaults());
+        for (int i = 0; i < builds.size(); i++) {
+            builds.addGradleBuild(summaries, i);
+            builds.addMavenBuild(summaries, i);
+        }
+    }
+
+    @Benchmark
+    public void formatGradleSummary() throws IOException {
+        format(summaries.getGradleSummaryAccumulator());
+    }
+
+    @Benchmark
+    public void formatMavenSummary() throws IOException {
+        format(summaries.getMavenSummaryAccumulator());
+    }
+
+    private <T extends SummaryAccumulator<?, ?, T>> void format(T accumulator) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(OutputStream.nullOutputStream()).useDefaultPrettyPrinter()) {
+            accumulator.getFormatter(generator).format(accumulator, formatDuration, transforms);
+        }
+    }
+}
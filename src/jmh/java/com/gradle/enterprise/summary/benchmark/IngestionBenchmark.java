@@ -0,0 +1,71 @@
+package com.gradle.enterprise.summary.benchmark;
+
+import com.gradle.enterprise.summary.accumulator.SummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The number of builds a single thread adds to the summaries per second, from small builds to builds with 10k tasks or goals.
+ * Run with the {@code gc} profiler, which is the default of the {@code jmh} task, to see the bytes allocated per build.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmark {
+    static final int BUILDS = 16;
+
+    @Param({"10", "1000", "10000"})
+    int workUnitsPerBuild;
+
+    private SyntheticBuilds builds;
+    private SummaryAccumulators summaries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void generateBuilds() {
+        builds = new SyntheticBuilds(BUILDS, workUnitsPerBuild, 42);
+    }
+
+    /**
+     * Starts every iteration with empty summaries, so the summaries do not grow over the whole run.
+     * The builds are added over and over, so after the first few builds every task and goal name is already known.
+     */
+    @Setup(Level.Iteration)
+    public void createSummaries() {
+        summaries = new SummaryAccumulators(SummarySettings.defaults());
+    }
+
+    @Benchmark
+    public SummaryAccumulators addGradleBuild() {
+        builds.addGradleBuild(summaries, nextIndex());
+        return summaries;
+    }
+
+    @Benchmark
+    public SummaryAccumulators addMavenBuild() {
+        builds.addMavenBuild(summaries, nextIndex());
+        return summaries;
+    }
+
+    private int nextIndex() {
+        int index = next;
+        next = (next + 1) % builds.size();
+        return index;
+    }
+}
@@ -0,0 +1,306 @@
+package com.gradle.enterprise.summary.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.gradle.enterprise.summary.accumulator.table.DurationHistogram;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import picocli.CommandLine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A stand-in for the Gradle Enterprise API, serving generated builds with a configurable latency and failures,
+ * so that the end-to-end throughput of the program can be measured without a production server.
+ * <p>
+ * It serves the list of builds, paged by {@code since} and {@code sinceBuild}, and the attributes and
+ * build cache performance of Gradle and Maven builds. The builds are spread evenly over the time window
+ * that ends when the server starts, and each is generated again on every request instead of being kept.
+ * <p>
+ * The JDK's HTTP server only speaks HTTP/1.1, so a GOAWAY is approximated by closing the connection
+ * without a response, which is what a client sees when a server recycles an HTTP/1.1 connection.
+ */
+@CommandLine.Command(
+    name = "stub-server",
+    mixinStandardHelpOptions = true,
+    description = "Serves generated builds like the Gradle Enterprise API",
+    usageHelpAutoWidth = true
+)
+public class StubServer implements Callable<Integer> {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final double Z_99 = 2.3263;
+    private static final int DEFAULT_MAX_BUILDS = 100;
+
+    @CommandLine.Option(names = "--port", description = "The port to listen on, any free port when 0", defaultValue = "0")
+    int port;
+
+    @CommandLine.Option(names = "--builds", description = "The number of builds in the time window", defaultValue = "10000")
+    int builds;
+
+    @CommandLine.Option(names = "--hours", description = "The length of the time window of the builds, which ends when the server starts", defaultValue = "24")
+    int hours;
+
+    @CommandLine.Option(names = "--maven-percentage", description = "The percentage of Maven builds", defaultValue = "30")
+    int mavenPercentage;
+
+    @CommandLine.Option(names = "--min-work-units", description = "The least number of tasks or goals of a build", defaultValue = "50")
+    int minWorkUnits;
+
+    @CommandLine.Option(names = "--max-work-units", description = "The largest number of tasks or goals of a build", defaultValue = "2000")
+    int maxWorkUnits;
+
+    @CommandLine.Option(names = "--latency-median-ms", description = "The median latency of a response, 0 for none", defaultValue = "20")
+    double latencyMedianMs;
+
+    @CommandLine.Option(names = "--latency-p99-ms", description = "The 99th percentile of the latency of a response, log-normally distributed around the median", defaultValue = "200")
+    double latencyP99Ms;
+
+    @CommandLine.Option(names = "--error-rate", description = "The share of requests for build data that fail with HTTP 500", defaultValue = "0")
+    double errorRate;
+
+    @CommandLine.Option(names = "--throttle-rate", description = "The share of requests for build data that are rejected with HTTP 429", defaultValue = "0")
+    double throttleRate;
+
+    @CommandLine.Option(names = "--goaway-rate", description = "The share of requests for build data whose connection is closed without a response", defaultValue = "0")
+    double goawayRate;
+
+    @CommandLine.Option(names = "--list-wait-ms", description = "How long a request for builds after the last one waits, at most its maxWaitSecs", defaultValue = "0")
+    long listWaitMs;
+
+    @CommandLine.Option(names = "--seed", description = "The seed of the generated builds", defaultValue = "42")
+    long seed;
+
+    private final Map<String, DurationHistogram> latencies = new TreeMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong bytesServed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong goaways = new AtomicLong();
+
+    private BuildGenerator generator;
+    private long windowStart;
+    private long windowEnd;
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public static void main(String[] args) {
+        System.exit(new CommandLine(new StubServer()).execute(args));
+    }
+
+    @Override
+    public Integer call() throws Exception {
+        int port = start();
+        System.out.printf("Stub server | Serving %d builds on http://localhost:%d, press Ctrl+C to stop%n", builds, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            stop();
+            printStatistics();
+        }));
+        Thread.currentThread().join();
+        return 0;
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int start() throws IOException {
+        generator = new BuildGenerator(seed);
+        windowEnd = System.currentTimeMillis();
+        windowStart = windowEnd - Duration.ofHours(hours).toMillis();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.setExecutor(executor);
+        server.createContext("/api/builds", this::handle);
+        server.start();
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    public int getBuilds() {
+        return builds;
+    }
+
+    public int getHours() {
+        return hours;
+    }
+
+    public void printStatistics() {
+        System.out.printf("Stub server | %d requests | %.1f MB served | %d errors | %d throttled | %d connections closed%n",
+            requests.get(), bytesServed.get() / 1024.0 / 1024.0, errors.get(), throttled.get(), goaways.get());
+        synchronized (latencies) {
+            latencies.forEach((endpoint, histogram) -> System.out.printf("Stub server | %-30s | p50 %5d ms | p90 %5d ms | p99 %5d ms | max %5d ms%n",
+                endpoint, histogram.getPercentile(0.5), histogram.getPercentile(0.9), histogram.getPercentile(0.99), histogram.getMax()));
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        String[] path = exchange.getRequestURI().getPath().substring("/api/builds".length()).split("/");
+        String endpoint = path.length == 3 ? path[2] : "builds";
+        requests.incrementAndGet();
+        try {
+            delay();
+            if (path.length <= 1) {
+                listBuilds(exchange, parseQuery(exchange.getRequestURI().getRawQuery()));
+            } else if (path.length != 3) {
+                respondWithProblem(exchange, 404, "not-found", "Unknown path " + exchange.getRequestURI().getPath());
+            } else if (!injectFailure(exchange)) {
+                buildData(exchange, path[1], path[2]);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+            synchronized (latencies) {
+                latencies.computeIfAbsent(endpoint, e -> new DurationHistogram()).add(Duration.ofNanos(System.nanoTime() - start).toMillis());
+            }
+        }
+    }
+
+    private void listBuilds(HttpExchange exchange, Map<String, String> query) throws IOException, InterruptedException {
+        int first;
+        if (query.containsKey("sinceBuild")) {
+            first = BuildGenerator.index(query.get("sinceBuild")) + 1;
+        } else {
+            long since = Long.parseLong(query.getOrDefault("since", "0"));
+            first = 0;
+            while (first < builds && availableAt(first) < since) {
+                first++;
+            }
+        }
+        if (first >= builds) {
+            // No builds were added since, the real server waits for new ones until maxWaitSecs passed
+            long maxWaitMs = Duration.ofSeconds(Long.parseLong(query.getOrDefault("maxWaitSecs", "0"))).toMillis();
+            Thread.sleep(Math.min(maxWaitMs, listWaitMs));
+        }
+
+        int maxBuilds = Integer.parseInt(query.getOrDefault("maxBuilds", Integer.toString(DEFAULT_MAX_BUILDS)));
+        ArrayNode response = JsonNodeFactory.instance.arrayNode();
+        for (int index = Math.max(first, 0); index < builds && index < first + maxBuilds; index++) {
+            response.add(generator.build(index, availableAt(index), generator.tool(index, mavenPercentage)));
+        }
+        respond(exchange, 200, MAPPER.writeValueAsBytes(response));
+    }
+
+    private void buildData(HttpExchange exchange, String id, String endpoint) throws IOException {
+        int index = BuildGenerator.index(id);
+        String tool = index >= 0 && index < builds ? generator.tool(index, mavenPercentage) : null;
+        if (tool == null || !endpoint.startsWith(tool + "-")) {
+            respondWithProblem(exchange, 404, "build-not-found", "No " + endpoint + " for build " + id);
+            return;
+        }
+
+        int workUnits = generator.workUnits(index, minWorkUnits, maxWorkUnits);
+        Object response;
+        switch (endpoint) {
+            case "gradle-attributes":
+                response = generator.gradleAttributes(index, availableAt(index));
+                break;
+            case "gradle-build-cache-performance":
+                response = generator.gradleModel(index, workUnits);
+                break;
+            case "maven-attributes":
+                response = generator.mavenAttributes(index, availableAt(index));
+                break;
+            case "maven-build-cache-performance":
+                response = generator.mavenModel(index, workUnits);
+                break;
+            default:
+                respondWithProblem(exchange, 404, "not-found", "Unknown endpoint " + endpoint);
+                return;
+        }
+        respond(exchange, 200, MAPPER.writeValueAsBytes(response));
+    }
+
+    /**
+     * @return whether the request failed
+     */
+    private boolean injectFailure(HttpExchange exchange) throws IOException {
+        double draw = ThreadLocalRandom.current().nextDouble();
+        if (draw < goawayRate) {
+            goaways.incrementAndGet();
+            // Closing the exchange before sending the response headers closes the connection
+            return true;
+        }
+        draw -= goawayRate;
+        if (draw < throttleRate) {
+            throttled.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respondWithProblem(exchange, 429, "too-many-requests", "Too many requests");
+            return true;
+        }
+        draw -= throttleRate;
+        if (draw < errorRate) {
+            errors.incrementAndGet();
+            respondWithProblem(exchange, 500, "unexpected-error", "Injected failure");
+            return true;
+        }
+        return false;
+    }
+
+    private void delay() throws InterruptedException {
+        if (latencyMedianMs <= 0) {
+            return;
+        }
+        double sigma = Math.log(Math.max(latencyP99Ms, latencyMedianMs) / latencyMedianMs) / Z_99;
+        double millis = latencyMedianMs * Math.exp(sigma * ThreadLocalRandom.current().nextGaussian());
+        Thread.sleep(Duration.ofNanos((long) (millis * 1_000_000)));
+    }
+
+    private long availableAt(int index) {
+        return windowStart + (windowEnd - windowStart) * (index + 1) / builds;
+    }
+
+    private void respondWithProblem(HttpExchange exchange, int status, String type, String detail) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", "application/problem+json");
+        respond(exchange, status, MAPPER.writeValueAsBytes(JsonNodeFactory.instance.objectNode()
+            .put("type", "urn:gradle:enterprise:api:problems:" + type)
+            .put("title", detail)
+            .put("status", status)
+            .put("detail", detail)));
+    }
+
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+        bytesServed.addAndGet(body.length);
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int separator = parameter.indexOf('=');
+            if (separator > 0) {
+                parameters.put(URLDecoder.decode(parameter.substring(0, separator), StandardCharsets.UTF_8),
+                    URLDecoder.decode(parameter.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+        return parameters;
+    }
+}
@@ -0,0 +1,83 @@
+package com.gradle.enterprise.summary.benchmark;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+import com.gradle.enterprise.summary.accumulator.SummarySink;
+import com.gradle.enterprise.summary.json.ProjectionModule;
+
+/**
+ * Gradle and Maven builds from a {@link BuildGenerator}, decoded into the models like the responses of the API,
+ * so that they hold the same fields.
+ */
+final class SyntheticBuilds {
+    private static final long FIRST_BUILD_AVAILABLE_AT = 1_660_000_000_000L;
+    private static final long MILLIS_BETWEEN_BUILDS = 60_000L;
+
+    private final ObjectMapper mapper = JsonMapper.builder()
+        .addModule(new ProjectionModule())
+        .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+        .build();
+
+    private final Build[] gradleBuilds;
+    private final GradleAttributes[] gradleAttributes;
+    private final GradleBuildCachePerformance[] gradleModels;
+    private final Build[] mavenBuilds;
+    private final MavenAttributes[] mavenAttributes;
+    private final MavenBuildCachePerformance[] mavenModels;
+
+    /**
+     * @param builds            the number of Gradle builds and of Maven builds to generate
+     * @param workUnitsPerBuild the number of tasks or goals of each build
+     */
+    SyntheticBuilds(int builds, int workUnitsPerBuild, long seed) {
+        BuildGenerator generator = new BuildGenerator(seed);
+        this.gradleBuilds = new Build[builds];
+        this.gradleAttributes = new GradleAttributes[builds];
+        this.gradleModels = new GradleBuildCachePerformance[builds];
+        this.mavenBuilds = new Build[builds];
+        this.mavenAttributes = new MavenAttributes[builds];
+        this.mavenModels = new MavenBuildCachePerformance[builds];
+
+        for (int i = 0; i < builds; i++) {
+            int gradleIndex = 2 * i;
+            int mavenIndex = 2 * i + 1;
+            gradleBuilds[i] = decode(generator.build(gradleIndex, availableAt(gradleIndex), "gradle"), Build.class);
+            gradleAttributes[i] = decode(generator.gradleAttributes(gradleIndex, availableAt(gradleIndex)), GradleAttributes.class);
+            gradleModels[i] = decode(generator.gradleModel(gradleIndex, workUnitsPerBuild), GradleBuildCachePerformance.class);
+            mavenBuilds[i] = decode(generator.build(mavenIndex, availableAt(mavenIndex), "maven"), Build.class);
+            mavenAttributes[i] = decode(generator.mavenAttributes(mavenIndex, availableAt(mavenIndex)), MavenAttributes.class);
+            mavenModels[i] = decode(generator.mavenModel(mavenIndex, workUnitsPerBuild), MavenBuildCachePerformance.class);
+        }
+    }
+
+    int size() {
+        return gradleBuilds.length;
+    }
+
+    void addGradleBuild(SummarySink sink, int index) {
+        sink.addGradleBuild(gradleBuilds[index], gradleAttributes[index], gradleModels[index]);
+    }
+
+    void addMavenBuild(SummarySink sink, int index) {
+        sink.addMavenBuild(mavenBuilds[index], mavenAttributes[index], mavenModels[index]);
+    }
+
+    private static long availableAt(int index) {
+        return FIRST_BUILD_AVAILABLE_AT + index * MILLIS_BETWEEN_BUILDS;
+    }
+
+    private <T> T decode(ObjectNode node, Class<T> type) {
+        try {
+            return mapper.treeToValue(node, type);
+        } catch (Exception e) {
+            throw new IllegalStateException("Could not decode a synthetic " + type.getSimpleName(), e);
+        }
+    }
+}
@@ -5,28 +5,56 @@ import com.gradle.enterprise.api.GradleEnterpriseApi;
 import com.gradle.enterprise.api.client.ApiClient;
 import com.gradle.enterprise.api.model.Build;
 import com.gradle.enterprise.summary.accumulator.BuildAccumulator;
+import com.gradle.enterprise.summary.accumulator.PooledSummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import com.gradle.enterprise.summary.accumulator.SummarySink;
+import com.gradle.enterprise.summary.accumulator.TrendInterval;
 import com.gradle.enterprise.summary.accumulator.WorkUnitAccumulator;
-import com.gradle.enterprise.summary.accumulator.gradle.GradleSummaryAccumulator;
-import com.gradle.enterprise.summary.accumulator.maven.MavenSummaryAccumulator;
+import com.gradle.enterprise.summary.accumulator.cardinality.DistinctCounters;
+import com.gradle.enterprise.summary.cache.CachingGradleEnterpriseApi;
+import com.gradle.enterprise.summary.cache.ResponseCache;
+import com.gradle.enterprise.summary.export.BuildExport;
+import com.gradle.enterprise.summary.http.AdaptiveConcurrencyLimiter;
+import com.gradle.enterprise.summary.http.ConcurrencyLimitingHttpClient;
+import com.gradle.enterprise.summary.http.ConfigurableApiClient;
+import com.gradle.enterprise.summary.http.GoawayReplayingHttpClient;
+import com.gradle.enterprise.summary.http.MetricsRecordingHttpClient;
+import com.gradle.enterprise.summary.http.RateLimitingHttpClient;
+import com.gradle.enterprise.summary.http.TokenBucket;
+import com.gradle.enterprise.summary.incremental.IncrementalSummaries;
+import com.gradle.enterprise.summary.json.DecodeTimingModule;
+import com.gradle.enterprise.summary.json.ProjectionModule;
 import com.gradle.enterprise.summary.metrics.ErrorAccumulator;
 import com.gradle.enterprise.summary.metrics.MetricsAccumulator;
+import com.gradle.enterprise.summary.metrics.MetricsServer;
+import com.gradle.enterprise.summary.metrics.PipelineMetrics;
+import com.gradle.enterprise.summary.processor.AsyncBuildProcessor;
 import com.gradle.enterprise.summary.processor.BuildsFetcher;
 import com.gradle.enterprise.summary.processor.ConcurrentBuildProcessor;
+import com.gradle.enterprise.summary.processor.ExecutorType;
+import com.gradle.enterprise.summary.processor.RetryQueue;
 import com.gradle.enterprise.summary.processor.SerialBuildProcessor;
+import com.gradle.enterprise.summary.processor.StreamingBuildsQueue;
+import com.gradle.enterprise.summary.resume.ResumableRun;
 import com.gradle.enterprise.summary.writer.ErrorsWriter;
+import com.gradle.enterprise.summary.writer.MetricsWriter;
 import com.gradle.enterprise.summary.writer.SummaryWriter;
+import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import picocli.CommandLine;
 
+import java.io.IOException;
+import java.net.http.HttpClient;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
-import java.util.Queue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 @CommandLine.Command(
@@ -39,10 +67,18 @@ import java.util.stream.Stream;
     descriptionHeading = "%n",
     synopsisSubcommandLabel = "COMMAND",
     usageHelpAutoWidth = true,
-    usageHelpWidth = 120
+    usageHelpWidth = 120,
+    defaultValueProvider = CommandLine.PropertiesDefaultProvider.class
 )
 public class SummaryMain implements Callable<Integer> {
+    private static final Logger logger = LoggerFactory.getLogger(SummaryMain.class);
     private static final Instant START_TIME = InstantUtils.nowUTC();
+    private static final int STREAMING_QUEUE_CAPACITY = 2000;
+    private static final Duration JOURNAL_SYNC_INTERVAL = Duration.ofSeconds(1);
+    private static final int INITIAL_CONCURRENCY_LIMIT = 8;
+
+    @CommandLine.Spec
+    CommandLine.Model.CommandSpec spec;
 
     @CommandLine.Option(
         names = "--server-url",
@@ -98,67 +134,458 @@ public class SummaryMain implements Callable<Integer> {
 
     @CommandLine.Option(
         names = "--concurrency",
-        description = "The number of threads used for processing the builds",
+        description = "The number of threads used for processing the builds (the number of builds in flight for the virtual and async executors)",
         order = 7,
         defaultValue = "32"
     )
     int numberOfThreads;
 
+    @CommandLine.Option(
+        names = "--streaming",
+        description = "Process the builds while they are being fetched instead of fetching all builds first",
+        order = 8
+    )
+    boolean streaming;
+
+    @CommandLine.Option(
+        names = "--executor",
+        description = "How the builds are processed: ${COMPLETION-CANDIDATES}",
+        order = 9,
+        defaultValue = "platform"
+    )
+    ExecutorType executorType;
+
+    @CommandLine.Option(
+        names = "--concurrent-requests",
+        description = "Request the build cache performance of a build at the same time as its attributes",
+        order = 10
+    )
+    boolean concurrentRequests;
+
+    @CommandLine.Option(
+        names = "--cache-dir",
+        description = "The directory to cache the build data fetched by the platform and virtual executors in (if omitted, nothing is cached)",
+        order = 11
+    )
+    String cacheDir;
+
+    @CommandLine.Option(
+        names = "--cache-max-size-mb",
+        description = "The size in megabytes above which the least recently used cache entries are evicted",
+        order = 12,
+        defaultValue = "2048"
+    )
+    long cacheMaxSizeMb;
+
+    @CommandLine.Option(
+        names = "--cache-max-age-days",
+        description = "The number of days after which unused cache entries are evicted",
+        order = 13,
+        defaultValue = "30"
+    )
+    int cacheMaxAgeDays;
+
+    @CommandLine.Option(
+        names = "--incremental-state",
+        description = "The file to keep the summaries in between runs, so that each run only processes the builds since the previous one",
+        order = 14
+    )
+    String incrementalStateFile;
+
+    @CommandLine.Option(
+        names = "--journal-dir",
+        description = "The directory to journal the processed builds and checkpoint the summaries in, so that an interrupted run can be resumed",
+        order = 15
+    )
+    String journalDir;
+
+    @CommandLine.Option(
+        names = "--resume",
+        description = "Resume the run journaled in the journal directory instead of starting a new one",
+        order = 16
+    )
+    boolean resume;
+
+    @CommandLine.Option(
+        names = "--checkpoint-interval-seconds",
+        description = "The number of seconds between two checkpoints of the summaries in the journal directory",
+        order = 17,
+        defaultValue = "60"
+    )
+    int checkpointIntervalSeconds;
+
+    @CommandLine.Option(
+        names = "--adaptive-concurrency",
+        description = "Adapt the number of concurrent requests for build data to the latency and pushback of the server, up to the concurrency",
+        order = 18
+    )
+    boolean adaptiveConcurrency;
+
+    @CommandLine.Option(
+        names = "--retry-budget",
+        description = "The maximum number of retries of builds that failed with a transient error, made after all other builds were processed (0 disables retrying)",
+        order = 19,
+        defaultValue = "1000"
+    )
+    int retryBudget;
+
+    @CommandLine.Option(
+        names = "--max-builds-list-rate",
+        description = "The maximum number of requests per second for the list of builds (if omitted, the rate is not limited)",
+        order = 20
+    )
+    Double maxBuildsListRate;
+
+    @CommandLine.Option(
+        names = "--max-build-data-rate",
+        description = "The maximum number of requests per second for the data of single builds (if omitted, the rate is not limited)",
+        order = 21
+    )
+    Double maxBuildDataRate;
+
+    @CommandLine.Option(
+        names = "--http-version",
+        description = "The HTTP version to request: ${COMPLETION-CANDIDATES} (if omitted, HTTP/2 is negotiated)",
+        order = 22
+    )
+    HttpClient.Version httpVersion;
+
+    @CommandLine.Option(
+        names = "--connect-timeout-seconds",
+        description = "The number of seconds to wait for a connection to the server (if omitted, there is no timeout)",
+        order = 23
+    )
+    Integer connectTimeoutSeconds;
+
+    @CommandLine.Option(
+        names = "--request-timeout-seconds",
+        description = "The number of seconds to wait for the response to a request (if omitted, there is no timeout)",
+        order = 24
+    )
+    Integer requestTimeoutSeconds;
+
+    @CommandLine.Option(
+        names = "--http-executor-threads",
+        description = "The number of threads the HTTP clients handle responses on (if omitted, the default executor of the HTTP client is used)",
+        order = 25
+    )
+    Integer httpExecutorThreads;
+
+    @CommandLine.Option(
+        names = "--http-clients",
+        description = "The number of HTTP clients, each with its own connections, to spread the requests over",
+        order = 26,
+        defaultValue = "1"
+    )
+    int httpClients;
+
+    @CommandLine.Option(
+        names = "--approximate-cardinality",
+        description = "Count the distinct users, projects and builds with HyperLogLog sketches instead of exactly, so that memory does not grow with their number",
+        order = 27
+    )
+    boolean approximateCardinality;
+
+    @CommandLine.Option(
+        names = "--cardinality-error",
+        description = "The relative standard error of the approximate distinct counts",
+        order = 28,
+        defaultValue = "0.01"
+    )
+    double cardinalityError;
+
+    @CommandLine.Option(
+        names = "--max-tracked-work-units",
+        description = "The number of task names per task type and goal names per goal type to track, keeping those with the most avoidable time, instead of all of them",
+        order = 29
+    )
+    Integer maxTrackedWorkUnits;
+
+    @CommandLine.Option(
+        names = "--gzip-output",
+        description = "Compress the summaries with gzip",
+        order = 30
+    )
+    boolean gzipOutput;
+
+    @CommandLine.Option(
+        names = "--export-builds",
+        description = "A gzipped file to which every processed build is exported as one line of JSON",
+        order = 31
+    )
+    String exportBuildsFile;
+
+    @CommandLine.Option(
+        names = "--trend-interval",
+        description = "The length of the buckets of time of the trends of the summaries, projects and task and goal types: ${COMPLETION-CANDIDATES}",
+        order = 32,
+        defaultValue = "day"
+    )
+    TrendInterval trendInterval;
+
+    @CommandLine.Option(
+        names = "--metrics-port",
+        description = "The local port on which to serve metrics of the pipeline in the Prometheus text format",
+        order = 33
+    )
+    Integer metricsPort;
+
+    // One per phase of processing, the builds retried at the end are counted by the last one
+    private final List<MetricsAccumulator> metricsAccumulators = new ArrayList<>();
+
     public static void main(String[] args) {
         System.setProperty("run.date", InstantUtils.toString(START_TIME));
 
-        System.exit(new CommandLine(new SummaryMain()).execute(args));
+        System.exit(new CommandLine(new SummaryMain()).setCaseInsensitiveEnumValuesAllowed(true).execute(args));
     }
 
     @Override
     public Integer call() throws Exception {
-        final var outputWriter = new SummaryWriter(shouldFormatDuration, getTransforms());
-        final var gradleSummaryAccumulator = new GradleSummaryAccumulator();
-        final var mavenSummaryAccumulator = new MavenSummaryAccumulator();
-        final var errorsWriter = new ErrorsWriter();
-        final var errorAccumulator = new ErrorAccumulator();
-
-        Runtime.getRuntime().addShutdownHook(new Thread(() -> writeOutput(outputWriter, gradleSummaryAccumulator, mavenSummaryAccumulator, errorsWriter, errorAccumulator)));
+        final var outputWriter = new SummaryWriter(shouldFormatDuration, gzipOutput, getTransforms(nrOfWorkUnits));
+        final var errorsWriter = new ErrorsWriter(START_TIME);
+        final var errorAccumulator = new ErrorAccumulator(errorsWriter);
+        final var metricsWriter = new MetricsWriter();
+        final var pipelineMetrics = new PipelineMetrics();
+        pipelineMetrics.registerErrors(errorAccumulator);
+
+        if (resume && journalDir == null) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--resume requires --journal-dir");
+        }
+        if (journalDir != null && incrementalStateFile != null) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--journal-dir cannot be combined with --incremental-state");
+        }
+        if (resume && exportBuildsFile != null) {
+            // The builds exported before the interruption are skipped by the resumed run, so they would be missing from a new export
+            throw new CommandLine.ParameterException(spec.commandLine(), "--export-builds cannot be combined with --resume");
+        }
+        if (!(cardinalityError > 0 && cardinalityError < 1)) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--cardinality-error must be between 0 and 1");
+        }
+        if (maxTrackedWorkUnits != null && maxTrackedWorkUnits < nrOfWorkUnits) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--max-tracked-work-units must be at least --work-units");
+        }
+        if (maxBuildsListRate != null && !isPositiveRate(maxBuildsListRate)) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--max-builds-list-rate must be a positive number");
+        }
+        if (maxBuildDataRate != null && !isPositiveRate(maxBuildDataRate)) {
+            throw new CommandLine.ParameterException(spec.commandLine(), "--max-build-data-rate must be a positive number");
+        }
+        var settings = SummarySettings.defaults()
+            .withDistinctCounters(approximateCardinality ? DistinctCounters.approximate(cardinalityError) : DistinctCounters.exact())
+            .withMaxTrackedNames(maxTrackedWorkUnits != null ? maxTrackedWorkUnits : SummarySettings.UNBOUNDED)
+            .withTrendInterval(trendInterval.getDuration());
 
+        Instant now = InstantUtils.nowUTC();
+        Instant startTime = getStartTime(now);
         var serverUrl = sanitizeServerUrl();
-        var accessKey = Files.readString(Paths.get(accessKeyFile)).trim();
         var projectName = this.projectName == null || this.projectName.isBlank() ? null : this.projectName;
 
-        var apiClient = configureApiClient(serverUrl, accessKey);
-        var api = new GradleEnterpriseApi(apiClient);
+        final IncrementalSummaries incrementalSummaries;
+        final ResumableRun resumableRun;
+        final SummarySink accumulatingSink;
+        if (incrementalStateFile != null) {
+            incrementalSummaries = IncrementalSummaries.loadOrCreate(Paths.get(incrementalStateFile), settings, serverUrl, projectName);
+            if (!Objects.equals(incrementalSummaries.getServerUrl(), serverUrl) || !Objects.equals(incrementalSummaries.getProjectName(), projectName)) {
+                throw new CommandLine.ParameterException(spec.commandLine(), String.format("--incremental-state holds the builds of %s for %s, not of %s for %s",
+                    incrementalSummaries.getServerUrl(), describeProject(incrementalSummaries.getProjectName()), serverUrl, describeProject(projectName)));
+            }
+            // The summaries are partitioned per day, so the window covers whole days
+            startTime = IncrementalSummaries.startOfWindow(startTime);
+            incrementalSummaries.retireBefore(startTime);
+            incrementalSummaries.recordLockWaits(pipelineMetrics::accumulatorLockWaited);
+            resumableRun = null;
+            accumulatingSink = incrementalSummaries;
+        } else if (journalDir != null) {
+            incrementalSummaries = null;
+            resumableRun = resume
+                ? ResumableRun.resume(Paths.get(journalDir), serverUrl, projectName, JOURNAL_SYNC_INTERVAL)
+                : ResumableRun.start(Paths.get(journalDir), startTime, now, settings, serverUrl, projectName, JOURNAL_SYNC_INTERVAL);
+            // A resumed run covers the time window of the run it continues
+            startTime = resumableRun.getStartTime();
+            now = resumableRun.getEndTime();
+            resumableRun.startCheckpoints(Duration.ofSeconds(checkpointIntervalSeconds));
+            resumableRun.recordLockWaits(pipelineMetrics::accumulatorLockWaited);
+            accumulatingSink = resumableRun;
+        } else {
+            incrementalSummaries = null;
+            resumableRun = null;
+            var pooledSummaries = new PooledSummaryAccumulators(settings);
+            pooledSummaries.recordLockWaits(pipelineMetrics::accumulatorLockWaited);
+            accumulatingSink = pooledSummaries;
+        }
+        final var buildExport = exportBuildsFile == null ? null : new BuildExport(Paths.get(exportBuildsFile), accumulatingSink);
+        final SummarySink summarySink = buildExport != null ? buildExport : accumulatingSink;
 
-        var buildsProcessor = new BuildsFetcher(api, errorAccumulator);
+        var buildsStart = BuildsFetcher.since(startTime);
+        if (incrementalSummaries != null) {
+            buildsStart = incrementalSummaries.getLastBuildId(startTime).map(BuildsFetcher::sinceBuild).orElse(buildsStart);
+        }
 
-        Instant now = InstantUtils.nowUTC();
-        var builds = buildsProcessor.fetchBuilds(getStartTime(now), now);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            if (buildExport != null) {
+                closeBuildExport(buildExport);
+            }
+            writeOutput(outputWriter, summarySink, errorsWriter, metricsWriter, pipelineMetrics);
+        }));
+
+        var accessKey = Files.readString(Paths.get(accessKeyFile)).trim();
+
+        var apiClient = configureApiClient(serverUrl, accessKey, pipelineMetrics);
+        final var metricsServer = metricsPort == null ? null : MetricsServer.start(metricsPort, pipelineMetrics);
+        if (metricsServer != null) {
+            System.out.printf("Metrics | Serving metrics on http://localhost:%d/metrics\n", metricsServer.getPort());
+        }
+        AdaptiveConcurrencyLimiter concurrencyLimiter = null;
+        if (adaptiveConcurrency) {
+            // Each build may have both of its requests in flight at the same time
+            int maxConcurrencyLimit = concurrentRequests ? 2 * numberOfThreads : numberOfThreads;
+            concurrencyLimiter = new AdaptiveConcurrencyLimiter(INITIAL_CONCURRENCY_LIMIT, 1, maxConcurrencyLimit);
+            pipelineMetrics.registerGauge("concurrency_limit", concurrencyLimiter::getLimit);
+            var limiter = concurrencyLimiter;
+            apiClient.decorateHttpClient(httpClient -> new ConcurrencyLimitingHttpClient(httpClient, limiter));
+        }
+        var buildsListRate = maxBuildsListRate == null ? null : new TokenBucket("builds list", maxBuildsListRate);
+        var buildDataRate = maxBuildDataRate == null ? null : new TokenBucket("build data", maxBuildDataRate);
+        if (buildsListRate != null || buildDataRate != null) {
+            // Added last so that requests wait for the rate before taking a concurrency permit
+            apiClient.decorateHttpClient(httpClient -> new RateLimitingHttpClient(httpClient, buildsListRate, buildDataRate));
+        }
+        // Outermost, so that a replayed request goes through the limits again
+        apiClient.decorateHttpClient(GoawayReplayingHttpClient::new);
+        var responseCache = cacheDir == null ? null : new ResponseCache(Paths.get(cacheDir), serverUrl, apiClient.getObjectMapper(), cacheMaxSizeMb * 1024 * 1024, Duration.ofDays(cacheMaxAgeDays));
+        var api = responseCache == null ? new GradleEnterpriseApi(apiClient) : new CachingGradleEnterpriseApi(apiClient, responseCache);
+        if (responseCache != null) {
+            responseCache.evict();
+        }
+
+        var buildsFetcher = resumableRun == null
+            ? new BuildsFetcher(api, errorAccumulator)
+            : new BuildsFetcher(api, errorAccumulator, resumableRun::isProcessed);
+
+        var retryQueue = retryBudget > 0 ? new RetryQueue(retryBudget) : null;
+        if (retryQueue != null) {
+            pipelineMetrics.registerGauge("retry_queue_depth", retryQueue::size);
+        }
+
+        final var start = buildsStart;
+        final var end = now;
+        if (streaming) {
+            var builds = new StreamingBuildsQueue(STREAMING_QUEUE_CAPACITY);
+            pipelineMetrics.registerGauge("streaming_queue_depth", builds::size);
+            var metricsAccumulator = createMetricsAccumulator(0, concurrencyLimiter);
+
+            var fetcherThread = new Thread(() -> buildsFetcher.streamBuilds(start, end, builds, metricsAccumulator), "builds-fetcher");
+            fetcherThread.setDaemon(true);
+            fetcherThread.start();
+
+            try {
+                metricsAccumulator.startProcessing();
+                processBuilds(apiClient, api, builds, summarySink, metricsAccumulator, errorAccumulator, projectName, retryQueue);
+                metricsAccumulator.stopProcessing();
+            } finally {
+                // Only stops the fetcher when processing ended before all builds were fetched
+                builds.cancel();
+                fetcherThread.interrupt();
+                fetcherThread.join();
+            }
+        } else {
+            var builds = buildsFetcher.fetchBuilds(start, end);
+
+            var metricsAccumulator = createMetricsAccumulator(builds.size(), concurrencyLimiter);
+            metricsAccumulator.startProcessing();
+            processBuilds(apiClient, api, builds, summarySink, metricsAccumulator, errorAccumulator, projectName, retryQueue);
+            metricsAccumulator.stopProcessing();
+        }
+
+        if (retryQueue != null && !retryQueue.isEmpty()) {
+            System.out.println("Retrying the builds that failed ...");
+            var metricsAccumulator = createMetricsAccumulator(0, concurrencyLimiter);
+            metricsAccumulator.startProcessing();
+            processBuilds(apiClient, api, retryQueue.builds(metricsAccumulator), summarySink, metricsAccumulator, errorAccumulator, projectName, retryQueue);
+            metricsAccumulator.stopProcessing();
+        }
+
+        errorAccumulator.printStatistics();
+        if (retryQueue != null) {
+            retryQueue.printStatistics();
+        }
+
+        if (buildsListRate != null) {
+            buildsListRate.printStatistics();
+        }
+        if (buildDataRate != null) {
+            buildDataRate.printStatistics();
+        }
 
-        var metricsAccumulator = new MetricsAccumulator(builds.size());
-        metricsAccumulator.startProcessing();
-        processBuilds(api, builds, gradleSummaryAccumulator, mavenSummaryAccumulator, metricsAccumulator, errorAccumulator, projectName);
+        if (responseCache != null) {
+            responseCache.printStatistics();
+        }
 
-        writeOutput(outputWriter, gradleSummaryAccumulator, mavenSummaryAccumulator, errorsWriter, errorAccumulator);
+        if (incrementalSummaries != null) {
+            var lastFetchedBuild = buildsFetcher.getLastFetchedBuild();
+            if (lastFetchedBuild != null) {
+                incrementalSummaries.setLastBuild(lastFetchedBuild);
+            }
+            incrementalSummaries.save(Paths.get(incrementalStateFile));
+        }
+
+        if (resumableRun != null) {
+            resumableRun.close();
+        }
+
+        if (buildExport != null) {
+            buildExport.close();
+            buildExport.printStatistics();
+        }
+
+        writeOutput(outputWriter, summarySink, errorsWriter, metricsWriter, pipelineMetrics);
+
+        if (metricsServer != null) {
+            metricsServer.close();
+        }
 
         return 0;
     }
 
-    private void writeOutput(SummaryWriter outputWriter, GradleSummaryAccumulator gradleSummaryAccumulator, MavenSummaryAccumulator mavenSummaryAccumulator, ErrorsWriter errorsWriter, ErrorAccumulator errorAccumulator) {
-        outputWriter.write(gradleSummaryAccumulator, START_TIME, "gradle");
-        outputWriter.write(mavenSummaryAccumulator, START_TIME, "maven");
+    private void writeOutput(SummaryWriter outputWriter, SummarySink summarySink, ErrorsWriter errorsWriter, MetricsWriter metricsWriter, PipelineMetrics pipelineMetrics) {
+        var summaries = summarySink.getSummaries();
+        outputWriter.write(summaries.getGradleSummaryAccumulator(), START_TIME, "gradle");
+        outputWriter.write(summaries.getMavenSummaryAccumulator(), START_TIME, "maven");
+
+        errorsWriter.close();
+        metricsWriter.write(pipelineMetrics, START_TIME);
+    }
 
-        if (!errorAccumulator.getErrors().isEmpty()) {
-            errorsWriter.write(errorAccumulator, START_TIME);
+    /**
+     * Completes the export when the run is interrupted, so that the builds exported until then can be read.
+     */
+    private static void closeBuildExport(BuildExport buildExport) {
+        try {
+            buildExport.close();
+        } catch (IOException e) {
+            logger.error("Could not complete the build export.", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
     }
 
+    private static boolean isPositiveRate(double rate) {
+        return rate > 0 && Double.isFinite(rate);
+    }
+
+    /**
+     * @return the transforms that order the projects by avoidable time and keep the given number of task and goal
+     * types and names with the most avoidable time
+     */
     @SuppressWarnings({"unchecked", "rawtypes"})
-    private List<StreamTransform<?>> getTransforms() {
+    public static List<StreamTransform<?>> getTransforms(int nrOfWorkUnits) {
         List<StreamTransform<?>> transforms = new ArrayList<>();
         transforms.add(new StreamTransform<>(WorkUnitAccumulator.class) {
             @Override
             public Stream<WorkUnitAccumulator> transform(Stream stream) {
-                return stream
-                    .sorted((o1, o2) -> Long.compare(((WorkUnitAccumulator<?, ?>) o2).getTotalAvoidableTime(), ((WorkUnitAccumulator) o1).getTotalAvoidableTime()))
-                    .limit(nrOfWorkUnits);
+                return ((Stream<WorkUnitAccumulator>) stream)
+                    .collect(TopK.collector(nrOfWorkUnits, Comparator.<WorkUnitAccumulator>comparingLong(WorkUnitAccumulator::getTotalAvoidableTime).reversed()))
+                    .stream();
             }
         });
 
@@ -174,22 +601,47 @@ public class SummaryMain implements Callable<Integer> {
     }
 
     private void processBuilds(
+        ApiClient apiClient,
         GradleEnterpriseApi api,
-        Queue<Build> builds,
-        GradleSummaryAccumulator gradleSummaryAccumulator,
-        MavenSummaryAccumulator mavenSummaryAccumulator,
+        Iterable<Build> builds,
+        SummarySink summarySink,
         MetricsAccumulator metricsAccumulator,
         ErrorAccumulator errorAccumulator,
-        String projectName
+        String projectName,
+        RetryQueue retryQueue
     ) {
-        ConcurrentBuildProcessor buildProcessor = new ConcurrentBuildProcessor(numberOfThreads,
-            new SerialBuildProcessor(
-                api, serverUrl, projectName, gradleSummaryAccumulator,
-                mavenSummaryAccumulator, metricsAccumulator, errorAccumulator
-            ),
-            builds);
-
-        buildProcessor.processBuilds();
+        if (executorType == ExecutorType.ASYNC) {
+            new AsyncBuildProcessor(
+                apiClient, numberOfThreads, projectName, summarySink,
+                metricsAccumulator, errorAccumulator, concurrentRequests, retryQueue
+            ).processBuilds(builds);
+            return;
+        }
+
+        try (var serialBuildProcessor = new SerialBuildProcessor(
+            api, serverUrl, projectName, summarySink,
+            metricsAccumulator, errorAccumulator, concurrentRequests, retryQueue
+        )) {
+            ConcurrentBuildProcessor buildProcessor = new ConcurrentBuildProcessor(executorType, numberOfThreads, serialBuildProcessor, builds);
+
+            buildProcessor.processBuilds();
+        }
+    }
+
+    private MetricsAccumulator createMetricsAccumulator(long initialNrOfBuilds, AdaptiveConcurrencyLimiter concurrencyLimiter) {
+        var metricsAccumulator = new MetricsAccumulator(initialNrOfBuilds);
+        if (concurrencyLimiter != null) {
+            metricsAccumulator.reportConcurrencyLimit(concurrencyLimiter::getLimit);
+        }
+        metricsAccumulators.add(metricsAccumulator);
+        return metricsAccumulator;
+    }
+
+    /**
+     * @return the number of builds processed without an error so far, over all phases of the run
+     */
+    public long getBuildsProcessedSuccessfully() {
+        return metricsAccumulators.stream().mapToLong(MetricsAccumulator::getBuildsProcessedSuccessfully).sum();
     }
 
     private Instant getStartTime(Instant now) {
@@ -200,14 +652,43 @@ public class SummaryMain implements Callable<Integer> {
         }
     }
 
+    private static String describeProject(String projectName) {
+        return projectName == null ? "all projects" : "project " + projectName;
+    }
+
     private String sanitizeServerUrl() {
         return serverUrl.endsWith("/")
             ? serverUrl.substring(0, serverUrl.length() - 1)
             : serverUrl;
     }
 
-    private ApiClient configureApiClient(String serverUrl, String accessKey) {
-        var apiClient = new ApiClient();
+    private ConfigurableApiClient configureApiClient(String serverUrl, String accessKey, PipelineMetrics pipelineMetrics) {
+        var httpClientBuilder = HttpClient.newBuilder();
+        if (httpVersion != null) {
+            httpClientBuilder.version(httpVersion);
+        }
+        if (connectTimeoutSeconds != null) {
+            httpClientBuilder.connectTimeout(Duration.ofSeconds(connectTimeoutSeconds));
+        }
+        if (httpExecutorThreads != null) {
+            httpClientBuilder.executor(Executors.newFixedThreadPool(httpExecutorThreads, runnable -> {
+                Thread thread = new Thread(runnable, "http-client");
+                thread.setDaemon(true);
+                return thread;
+            }));
+        }
+
+        var apiClient = new ConfigurableApiClient();
+        // Before any API is created, as they resolve their readers when they are created
+        apiClient.getObjectMapper().registerModule(new ProjectionModule());
+        apiClient.getObjectMapper().registerModule(new DecodeTimingModule(pipelineMetrics::decoded));
+        apiClient.setHttpClientBuilder(httpClientBuilder);
+        apiClient.setHttpClients(httpClients);
+        // Added first, so that it records the requests as they are sent to the server
+        apiClient.decorateHttpClient(httpClient -> new MetricsRecordingHttpClient(httpClient, pipelineMetrics));
+        if (requestTimeoutSeconds != null) {
+            apiClient.setReadTimeout(Duration.ofSeconds(requestTimeoutSeconds));
+        }
         apiClient.updateBaseUri(serverUrl);
         apiClient.setRequestInterceptor(request -> request.setHeader("Authorization", "Bearer " + accessKey));
         return apiClient;
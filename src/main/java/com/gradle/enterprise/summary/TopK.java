@@ -0,0 +1,87 @@
+package com.gradle.enterprise.summary;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collector;
+
+/**
+ * Selects the first elements of a stream in a given order without sorting all of them, by keeping the best ones
+ * seen so far in a bounded heap. Equal elements keep their encounter order, as with a stable sort.
+ */
+public final class TopK {
+
+    private TopK() {
+    }
+
+    /**
+     * @return a collector of at most {@code k} elements, sorted in the given order
+     */
+    public static <T> Collector<T, ?, List<T>> collector(int k, Comparator<? super T> order) {
+        Comparator<Ranked<T>> ranking = Comparator.<Ranked<T>, T>comparing(ranked -> ranked.element, order)
+            .thenComparingLong(ranked -> ranked.index);
+        return Collector.<T, Selection<T>, List<T>>of(
+            () -> new Selection<>(k, ranking),
+            Selection::add,
+            Selection::merge,
+            Selection::toList
+        );
+    }
+
+    private static final class Selection<T> {
+        private final int k;
+        private final Comparator<Ranked<T>> ranking;
+        // The worst of the selected elements is at the head, to be replaced by a better one
+        private final PriorityQueue<Ranked<T>> selected;
+        private long index;
+
+        private Selection(int k, Comparator<Ranked<T>> ranking) {
+            this.k = k;
+            this.ranking = ranking;
+            this.selected = new PriorityQueue<>(ranking.reversed());
+        }
+
+        private void add(T element) {
+            offer(new Ranked<>(element, index++));
+        }
+
+        /**
+         * Adds the elements selected from the part of the stream that follows the elements of this selection.
+         */
+        private Selection<T> merge(Selection<T> following) {
+            for (Ranked<T> ranked : following.selected) {
+                offer(new Ranked<>(ranked.element, index + ranked.index));
+            }
+            index += following.index;
+            return this;
+        }
+
+        private void offer(Ranked<T> ranked) {
+            if (selected.size() < k) {
+                selected.add(ranked);
+            } else if (k > 0 && ranking.compare(ranked, selected.peek()) < 0) {
+                selected.poll();
+                selected.add(ranked);
+            }
+        }
+
+        private List<T> toList() {
+            List<Ranked<T>> ranked = new ArrayList<>(selected);
+            ranked.sort(ranking);
+            List<T> elements = new ArrayList<>(ranked.size());
+            ranked.forEach(element -> elements.add(element.element));
+            return elements;
+        }
+    }
+
+    private static final class Ranked<T> {
+        private final T element;
+        private final long index;
+
+        private Ranked(T element, long index) {
+            this.element = element;
+            this.index = index;
+        }
+    }
+}
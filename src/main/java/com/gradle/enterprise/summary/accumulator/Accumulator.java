@@ -1,11 +1,12 @@
 package com.gradle.enterprise.summary.accumulator;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-public interface Accumulator<T> {
+import java.io.Serializable;
 
-    Formatter<T> getFormatter(ObjectMapper mapper, ObjectNode parent);
+public interface Accumulator<T> extends Serializable {
+
+    Formatter<T> getFormatter(JsonGenerator generator);
 
 }
@@ -0,0 +1,10 @@
+package com.gradle.enterprise.summary.accumulator;
+
+public interface Mergeable<T> {
+
+    /**
+     * Adds everything accumulated by {@code other} to this accumulator, as if it had seen the same builds.
+     */
+    void merge(T other);
+
+}
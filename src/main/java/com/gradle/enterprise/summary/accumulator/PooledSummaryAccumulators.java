@@ -0,0 +1,166 @@
+package com.gradle.enterprise.summary.accumulator;
+
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * Accumulates builds added concurrently without the processors waiting for each other.
+ * <p>
+ * Every build is added to a {@link SummaryAccumulators} that is borrowed from a pool for the duration of the call,
+ * so each of them is only ever used by one thread at a time and there are never more of them than builds added at
+ * the same time. They are merged into a single summary when the summaries are requested.
+ * <p>
+ * There are at most as many summaries as processors, however many threads add builds: once all of them are in use,
+ * a thread waits for one of them instead of adding another copy of the summaries.
+ */
+public final class PooledSummaryAccumulators implements SummarySink, Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_SLOTS = Runtime.getRuntime().availableProcessors();
+    private static final LongConsumer IGNORE_LOCK_WAITS = nanos -> {
+    };
+
+    private final SummarySettings settings;
+    private transient List<Slot> slots;
+    private transient Deque<Slot> idleSlots;
+    private transient volatile LongConsumer lockWaits = IGNORE_LOCK_WAITS;
+
+    public PooledSummaryAccumulators() {
+        this(SummarySettings.defaults());
+    }
+
+    public PooledSummaryAccumulators(SummarySettings settings) {
+        this.settings = settings;
+        this.slots = new CopyOnWriteArrayList<>();
+        this.idleSlots = new ConcurrentLinkedDeque<>();
+    }
+
+    /**
+     * @param initial summaries of earlier builds to continue from, whose settings are kept
+     */
+    public PooledSummaryAccumulators(SummaryAccumulators initial) {
+        this(initial.getSettings());
+        Slot slot = new Slot(initial);
+        slots.add(slot);
+        idleSlots.push(slot);
+    }
+
+    /**
+     * @param lockWaits receives the nanoseconds of every wait for the lock on one of the pooled summaries
+     */
+    public void recordLockWaits(LongConsumer lockWaits) {
+        this.lockWaits = lockWaits;
+    }
+
+    @Override
+    public void addGradleBuild(Build build, GradleAttributes attributes, GradleBuildCachePerformance model) {
+        withSlot(summaries -> summaries.addGradleBuild(build, attributes, model));
+    }
+
+    @Override
+    public void addMavenBuild(Build build, MavenAttributes attributes, MavenBuildCachePerformance model) {
+        withSlot(summaries -> summaries.addMavenBuild(build, attributes, model));
+    }
+
+    /**
+     * @return the merge of all pooled summaries, which may be requested while builds are still being added
+     */
+    @Override
+    public SummaryAccumulators getSummaries() {
+        SummaryAccumulators merged = new SummaryAccumulators(settings);
+        for (Slot slot : slots) {
+            lock(slot);
+            try {
+                merged.merge(slot.summaries);
+            } finally {
+                slot.lock.unlock();
+            }
+        }
+        return merged;
+    }
+
+    private void withSlot(Consumer<SummaryAccumulators> action) {
+        Slot slot = idleSlots.pollFirst();
+        boolean borrowed = true;
+        if (slot == null) {
+            slot = addSlot();
+        }
+        if (slot == null) {
+            // Shares a slot that is borrowed by another thread, which returns it to the idle slots
+            List<Slot> allSlots = slots;
+            slot = allSlots.get(Math.floorMod(Thread.currentThread().threadId(), allSlots.size()));
+            borrowed = false;
+        }
+
+        // Only contended while the summaries are being merged, or when all slots are in use
+        lock(slot);
+        try {
+            action.accept(slot.summaries);
+        } finally {
+            slot.lock.unlock();
+            if (borrowed) {
+                // Most recently used first, so that a few summaries stay warm when builds are added at a low rate
+                idleSlots.offerFirst(slot);
+            }
+        }
+    }
+
+    /**
+     * @return a new slot, or {@code null} if there are as many as allowed
+     */
+    private Slot addSlot() {
+        synchronized (slots) {
+            if (slots.size() >= MAX_SLOTS) {
+                return null;
+            }
+            Slot slot = new Slot(new SummaryAccumulators(settings));
+            slots.add(slot);
+            return slot;
+        }
+    }
+
+    private void lock(Slot slot) {
+        if (!slot.lock.tryLock()) {
+            long start = System.nanoTime();
+            slot.lock.lock();
+            lockWaits.accept(System.nanoTime() - start);
+        }
+    }
+
+    // Stored merged, so that the pool does not keep growing over runs that continue from stored summaries
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        out.defaultWriteObject();
+        out.writeObject(getSummaries());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        Slot slot = new Slot((SummaryAccumulators) in.readObject());
+        slots = new CopyOnWriteArrayList<>(List.of(slot));
+        idleSlots = new ConcurrentLinkedDeque<>(slots);
+        lockWaits = IGNORE_LOCK_WAITS;
+    }
+
+    private static final class Slot {
+        private final ReentrantLock lock = new ReentrantLock();
+        private final SummaryAccumulators summaries;
+
+        private Slot(SummaryAccumulators summaries) {
+            this.summaries = summaries;
+        }
+    }
+}
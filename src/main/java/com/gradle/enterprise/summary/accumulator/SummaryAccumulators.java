@@ -0,0 +1,66 @@
+package com.gradle.enterprise.summary.accumulator;
+
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+import com.gradle.enterprise.summary.accumulator.gradle.GradleSummaryAccumulator;
+import com.gradle.enterprise.summary.accumulator.maven.MavenSummaryAccumulator;
+
+import java.io.Serializable;
+
+/**
+ * The Gradle and the Maven summary of the same set of builds.
+ * Not thread-safe, builds added concurrently go through {@link PooledSummaryAccumulators}.
+ */
+public final class SummaryAccumulators implements SummarySink, Mergeable<SummaryAccumulators>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final SummarySettings settings;
+    private final GradleSummaryAccumulator gradleSummaryAccumulator;
+    private final MavenSummaryAccumulator mavenSummaryAccumulator;
+
+    public SummaryAccumulators() {
+        this(SummarySettings.defaults());
+    }
+
+    public SummaryAccumulators(SummarySettings settings) {
+        this.settings = settings;
+        this.gradleSummaryAccumulator = new GradleSummaryAccumulator(settings);
+        this.mavenSummaryAccumulator = new MavenSummaryAccumulator(settings);
+    }
+
+    public SummarySettings getSettings() {
+        return settings;
+    }
+
+    public GradleSummaryAccumulator getGradleSummaryAccumulator() {
+        return gradleSummaryAccumulator;
+    }
+
+    public MavenSummaryAccumulator getMavenSummaryAccumulator() {
+        return mavenSummaryAccumulator;
+    }
+
+    @Override
+    public void addGradleBuild(Build build, GradleAttributes attributes, GradleBuildCachePerformance model) {
+        gradleSummaryAccumulator.addBuild(build, attributes, model);
+    }
+
+    @Override
+    public void addMavenBuild(Build build, MavenAttributes attributes, MavenBuildCachePerformance model) {
+        mavenSummaryAccumulator.addBuild(build, attributes, model);
+    }
+
+    @Override
+    public SummaryAccumulators getSummaries() {
+        return this;
+    }
+
+    @Override
+    public void merge(SummaryAccumulators other) {
+        gradleSummaryAccumulator.merge(other.gradleSummaryAccumulator);
+        mavenSummaryAccumulator.merge(other.mavenSummaryAccumulator);
+    }
+}
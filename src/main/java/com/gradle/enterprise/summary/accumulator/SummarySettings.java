@@ -0,0 +1,67 @@
+package com.gradle.enterprise.summary.accumulator;
+
+import com.gradle.enterprise.summary.accumulator.cardinality.DistinctCounters;
+
+import java.io.Serializable;
+import java.time.Duration;
+
+/**
+ * How summaries accumulate builds. Summaries are only merged with summaries that were created with the same settings,
+ * which is why stored summaries keep the settings they were created with.
+ */
+public final class SummarySettings implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int UNBOUNDED = 0;
+
+    private final DistinctCounters distinctCounters;
+    private final int maxTrackedNames;
+    private final Duration trendInterval;
+
+    private SummarySettings(DistinctCounters distinctCounters, int maxTrackedNames, Duration trendInterval) {
+        this.distinctCounters = distinctCounters;
+        this.maxTrackedNames = maxTrackedNames;
+        this.trendInterval = trendInterval;
+    }
+
+    /**
+     * @return settings that count everything exactly, with daily trends
+     */
+    public static SummarySettings defaults() {
+        return new SummarySettings(DistinctCounters.exact(), UNBOUNDED, Duration.ofDays(1));
+    }
+
+    /**
+     * @param distinctCounters how the distinct users, projects and builds are counted
+     */
+    public SummarySettings withDistinctCounters(DistinctCounters distinctCounters) {
+        return new SummarySettings(distinctCounters, maxTrackedNames, trendInterval);
+    }
+
+    /**
+     * @param maxTrackedNames the number of task names per task type and goal names per goal type to track,
+     *                        or {@link #UNBOUNDED} to track all of them
+     */
+    public SummarySettings withMaxTrackedNames(int maxTrackedNames) {
+        return new SummarySettings(distinctCounters, maxTrackedNames, trendInterval);
+    }
+
+    /**
+     * @param trendInterval the length of the buckets of time the trends are kept in
+     */
+    public SummarySettings withTrendInterval(Duration trendInterval) {
+        return new SummarySettings(distinctCounters, maxTrackedNames, trendInterval);
+    }
+
+    public DistinctCounters getDistinctCounters() {
+        return distinctCounters;
+    }
+
+    public int getMaxTrackedNames() {
+        return maxTrackedNames;
+    }
+
+    public Duration getTrendInterval() {
+        return trendInterval;
+    }
+}
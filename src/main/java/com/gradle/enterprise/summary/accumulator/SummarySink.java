@@ -0,0 +1,23 @@
+package com.gradle.enterprise.summary.accumulator;
+
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+
+/**
+ * Receives the data of every processed build. Called concurrently by the build processors.
+ */
+public interface SummarySink {
+
+    void addGradleBuild(Build build, GradleAttributes attributes, GradleBuildCachePerformance model);
+
+    void addMavenBuild(Build build, MavenAttributes attributes, MavenBuildCachePerformance model);
+
+    /**
+     * @return the summaries of all builds added so far
+     */
+    SummaryAccumulators getSummaries();
+
+}
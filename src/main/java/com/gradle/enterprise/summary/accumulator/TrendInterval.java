@@ -0,0 +1,24 @@
+package com.gradle.enterprise.summary.accumulator;
+
+import java.time.Duration;
+
+public enum TrendInterval {
+    /**
+     * A bucket per hour, which takes 24 times the memory of daily buckets.
+     */
+    HOUR(Duration.ofHours(1)),
+    /**
+     * A bucket per day, in UTC.
+     */
+    DAY(Duration.ofDays(1));
+
+    private final Duration duration;
+
+    TrendInterval(Duration duration) {
+        this.duration = duration;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+}
@@ -2,7 +2,10 @@ package com.gradle.enterprise.summary.accumulator;
 
 public interface WorkUnitAccumulator<E, T> extends Accumulator<T>, WithAvoidance {
 
-    void addExecution(E item, String buildId);
+    /**
+     * @param availableAt when the build of the execution became available, in milliseconds since the epoch
+     */
+    void addExecution(E item, String buildId, long availableAt);
 
     int getTotalExecutions();
 
@@ -0,0 +1,16 @@
+package com.gradle.enterprise.summary.accumulator.cardinality;
+
+import com.gradle.enterprise.summary.accumulator.Mergeable;
+
+import java.io.Serializable;
+
+/**
+ * Counts the distinct values added to it, such as user names or build ids.
+ */
+public interface DistinctCounter extends Mergeable<DistinctCounter>, Serializable {
+
+    void add(String value);
+
+    long count();
+
+}
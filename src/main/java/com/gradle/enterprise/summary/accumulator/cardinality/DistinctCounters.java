@@ -0,0 +1,43 @@
+package com.gradle.enterprise.summary.accumulator.cardinality;
+
+import java.io.Serializable;
+
+/**
+ * Creates the distinct counters of a summary, which are either exact or approximate for all of its counts,
+ * so that the summaries created by the same instance can be merged.
+ */
+public final class DistinctCounters implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final int EXACT = 0;
+
+    private final int precision;
+
+    private DistinctCounters(int precision) {
+        this.precision = precision;
+    }
+
+    public static DistinctCounters exact() {
+        return new DistinctCounters(EXACT);
+    }
+
+    /**
+     * @param relativeError the relative standard error the counts may have, which determines the size of the sketches
+     */
+    public static DistinctCounters approximate(double relativeError) {
+        if (!(relativeError > 0 && relativeError < 1)) {
+            throw new IllegalArgumentException("The relative error must be between 0 and 1: " + relativeError);
+        }
+        return new DistinctCounters(HyperLogLog.precisionFor(relativeError));
+    }
+
+    public DistinctCounter newCounter() {
+        return precision == EXACT ? new ExactDistinctCounter() : new HyperLogLog(precision);
+    }
+
+    @Override
+    public String toString() {
+        return precision == EXACT
+            ? "exact"
+            : String.format("approximate (%d registers, %.2f%% relative standard error)", 1 << precision, 100 * HyperLogLog.relativeErrorOf(precision));
+    }
+}
@@ -0,0 +1,40 @@
+package com.gradle.enterprise.summary.accumulator.cardinality;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps every distinct value, so its memory grows with the number of values.
+ */
+final class ExactDistinctCounter implements DistinctCounter {
+    private static final long serialVersionUID = 1L;
+
+    private final Set<String> values = new HashSet<>();
+
+    @Override
+    public void add(String value) {
+        values.add(value);
+    }
+
+    @Override
+    public long count() {
+        return values.size();
+    }
+
+    Set<String> getValues() {
+        return values;
+    }
+
+    @Override
+    public void merge(DistinctCounter other) {
+        if (!(other instanceof ExactDistinctCounter)) {
+            throw new IllegalArgumentException("Cannot merge approximate distinct counts into exact ones");
+        }
+        values.addAll(((ExactDistinctCounter) other).values);
+    }
+
+    @Override
+    public String toString() {
+        return values.toString();
+    }
+}
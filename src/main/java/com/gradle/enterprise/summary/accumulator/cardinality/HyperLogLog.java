@@ -0,0 +1,202 @@
+package com.gradle.enterprise.summary.accumulator.cardinality;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the number of distinct values from the 64-bit hashes of the values, in memory that does not grow
+ * with the number of values.
+ * <p>
+ * As long as few values were added, their hashes are kept in a sparse set and counted exactly. Once the set would take
+ * more memory than the registers, it is replaced by the 2<sup>precision</sup> one-byte registers of a HyperLogLog sketch,
+ * whose estimate has a relative standard error of {@code 1.04 / sqrt(2^precision)}.
+ * Sketches of the same precision can be merged without losing accuracy.
+ */
+final class HyperLogLog implements DistinctCounter {
+    private static final long serialVersionUID = 1L;
+
+    static final int MIN_PRECISION = 4;
+    static final int MAX_PRECISION = 18;
+    private static final long EMPTY = 0L;
+    private static final long NULL_HASH = 0x9e3779b97f4a7c15L;
+
+    private final int precision;
+
+    // Open-addressing set of hashes, replaced by the registers once it grows too large
+    private long[] sparse = new long[8];
+    private int sparseSize;
+    private byte[] registers;
+
+    HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("The precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION + ": " + precision);
+        }
+        this.precision = precision;
+    }
+
+    /**
+     * @return the lowest precision whose relative standard error is at most {@code relativeError}
+     */
+    static int precisionFor(double relativeError) {
+        double registers = Math.pow(1.04 / relativeError, 2);
+        int precision = 64 - Long.numberOfLeadingZeros((long) Math.ceil(registers) - 1);
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    static double relativeErrorOf(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    @Override
+    public void add(String value) {
+        addHash(value == null ? NULL_HASH : hash(value));
+    }
+
+    private void addHash(long hash) {
+        if (registers != null) {
+            addToRegisters(hash);
+            return;
+        }
+
+        // The empty marker cannot be a hash
+        long key = hash == EMPTY ? 1L : hash;
+        int mask = sparse.length - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            if (sparse[slot] == key) {
+                return;
+            }
+            if (sparse[slot] == EMPTY) {
+                sparse[slot] = key;
+                sparseSize++;
+                break;
+            }
+        }
+
+        // Each hash takes 8 bytes and the table is at most half full, while each register takes 1 byte
+        if (sparseSize * 16L > (1L << precision)) {
+            toRegisters();
+        } else if (sparseSize * 2 > sparse.length) {
+            long[] hashes = sparse;
+            sparse = new long[hashes.length * 2];
+            sparseSize = 0;
+            for (long existing : hashes) {
+                if (existing != EMPTY) {
+                    addHash(existing);
+                }
+            }
+        }
+    }
+
+    private void toRegisters() {
+        registers = new byte[1 << precision];
+        for (long hash : sparse) {
+            if (hash != EMPTY) {
+                addToRegisters(hash);
+            }
+        }
+        sparse = null;
+        sparseSize = 0;
+    }
+
+    private void addToRegisters(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        // The remaining bits, with a stop bit so that the rank never exceeds what they can hold
+        long rest = (hash << precision) | (1L << (precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    @Override
+    public long count() {
+        if (registers == null) {
+            return sparseSize;
+        }
+
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            // Linear counting is more accurate for small cardinalities
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    @Override
+    public void merge(DistinctCounter other) {
+        if (other instanceof ExactDistinctCounter) {
+            ((ExactDistinctCounter) other).getValues().forEach(this::add);
+            return;
+        }
+
+        HyperLogLog sketch = (HyperLogLog) other;
+        if (sketch.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + sketch.precision + " into a sketch of precision " + precision);
+        }
+        if (sketch.registers == null) {
+            for (long hash : sketch.sparse) {
+                if (hash != EMPTY) {
+                    addHash(hash);
+                }
+            }
+            return;
+        }
+        if (registers == null) {
+            toRegisters();
+        }
+        for (int i = 0; i < registers.length; i++) {
+            registers[i] = (byte) Math.max(registers[i], sketch.registers[i]);
+        }
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    private static int slot(long hash, int mask) {
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    /**
+     * FNV-1a over the characters, followed by the finalizer of MurmurHash3 to spread the bits over the whole hash.
+     */
+    static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "HyperLogLog{" +
+            "precision=" + precision +
+            ", count=" + count() +
+            ", sparse=" + (registers == null) +
+            '}';
+    }
+}
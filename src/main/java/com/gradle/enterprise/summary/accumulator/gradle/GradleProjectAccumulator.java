@@ -1,46 +1,59 @@
 package com.gradle.enterprise.summary.accumulator.gradle;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.Build;
 import com.gradle.enterprise.api.model.GradleAttributes;
 import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
 import com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry;
 import com.gradle.enterprise.summary.StreamTransform;
 import com.gradle.enterprise.summary.accumulator.BuildAccumulator;
+import com.gradle.enterprise.summary.accumulator.Mergeable;
+import com.gradle.enterprise.summary.accumulator.cardinality.DistinctCounter;
+import com.gradle.enterprise.summary.accumulator.table.TimeSeries;
+import com.gradle.enterprise.summary.accumulator.table.WorkUnitTable;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
-public class GradleProjectAccumulator implements BuildAccumulator<GradleAttributes, GradleBuildCachePerformance, GradleProjectAccumulator> {
+public class GradleProjectAccumulator implements BuildAccumulator<GradleAttributes, GradleBuildCachePerformance, GradleProjectAccumulator>, Mergeable<GradleProjectAccumulator> {
+    private static final long serialVersionUID = 3L;
 
     private final String projectName;
+    private final TaskTable tasks;
+    private final int tasksRow;
 
     private int totalNumberOfBuilds = 0;
 
-    private final Set<String> userNames = new HashSet<>();
+    private final DistinctCounter userNames;
+    private final TimeSeries trend;
     private long totalBuildTime = 0;
     private long totalTaskExecutionTime = 0;
     private long totalTaskAvoidanceTime = 0;
     private long totalTaskAvoidableTime = 0;
     private long totalTaskNonAvoidableTime = 0;
 
-    private final Map<String, TaskTypeAccumulator> taskTypeAccumulatorMap = new LinkedHashMap<>();
-    private final Function<String, TaskTypeAccumulator> createTaskTypeAccumulator;
-
-    public GradleProjectAccumulator(String projectName) {
+    /**
+     * @param tasks the table to keep the task types and task names of the project in, shared by all projects of a summary
+     * @param userNames the counter of the distinct users of the project
+     * @param trend the series to keep the builds of the project over time in
+     */
+    public GradleProjectAccumulator(String projectName, TaskTable tasks, DistinctCounter userNames, TimeSeries trend) {
         this.projectName = projectName;
-        this.createTaskTypeAccumulator = TaskTypeAccumulator::new;
+        this.userNames = userNames;
+        this.trend = trend;
+        this.tasks = tasks;
+        this.tasksRow = tasks.addRoot();
     }
 
-    public Map<String, TaskTypeAccumulator> getTaskTypeAccumulatorMap() {
-        return taskTypeAccumulatorMap;
+    public List<TaskTypeAccumulator> getTaskTypeAccumulators() {
+        List<TaskTypeAccumulator> taskTypes = new ArrayList<>();
+        for (int child = tasks.firstChild(tasksRow); child != WorkUnitTable.NO_ROW; child = tasks.nextSibling(child)) {
+            taskTypes.add(new TaskTypeAccumulator(tasks, child));
+        }
+        return taskTypes;
     }
 
     public long getTotalAvoidableTime() {
@@ -54,13 +67,29 @@ public class GradleProjectAccumulator implements BuildAccumulator<GradleAttribut
         totalBuildTime += model.getBuildTime();
         totalTaskExecutionTime += model.getEffectiveTaskExecutionTime();
         totalTaskAvoidanceTime += model.getAvoidanceSavingsSummary().getTotal();
-        totalTaskAvoidableTime += getTaskAvoidableTime(model.getTaskExecution());
+        long taskAvoidableTime = getTaskAvoidableTime(model.getTaskExecution());
+        totalTaskAvoidableTime += taskAvoidableTime;
         totalTaskNonAvoidableTime += getTaskNonAvoidableTime(model.getTaskExecution());
-        addTaskTypes(model.getTaskExecution(), build.getId());
+        trend.add(build.getAvailableAt(), 1, model.getBuildTime(), taskAvoidableTime);
+        addTaskTypes(model.getTaskExecution(), build.getId(), build.getAvailableAt());
+    }
+
+    private void addTaskTypes(List<GradleBuildCachePerformanceTaskExecutionEntry> taskExecution, String buildId, long availableAt) {
+        taskExecution.forEach(item -> tasks.addTaskExecution(tasks.child(tasksRow, item.getTaskType()), item, buildId, availableAt));
     }
 
-    private void addTaskTypes(List<GradleBuildCachePerformanceTaskExecutionEntry> taskExecution, String buildId) {
-        taskExecution.forEach(item -> taskTypeAccumulatorMap.computeIfAbsent(item.getTaskType(), createTaskTypeAccumulator).addExecution(item, buildId));
+    @Override
+    public void merge(GradleProjectAccumulator other) {
+        totalNumberOfBuilds += other.totalNumberOfBuilds;
+        userNames.merge(other.userNames);
+        totalBuildTime += other.totalBuildTime;
+        totalTaskExecutionTime += other.totalTaskExecutionTime;
+        totalTaskAvoidanceTime += other.totalTaskAvoidanceTime;
+        totalTaskAvoidableTime += other.totalTaskAvoidableTime;
+        totalTaskNonAvoidableTime += other.totalTaskNonAvoidableTime;
+        trend.merge(other.trend);
+
+        tasks.mergeChildren(tasksRow, other.tasks, other.tasksRow);
     }
 
     long getTaskAvoidableTime(List<GradleBuildCachePerformanceTaskExecutionEntry> taskExecution) {
@@ -81,37 +110,35 @@ public class GradleProjectAccumulator implements BuildAccumulator<GradleAttribut
     }
 
     @Override
-    public Formatter<GradleProjectAccumulator> getFormatter(ObjectMapper mapper, ObjectNode parent) {
-        return new JsonFormatter(mapper, parent);
+    public Formatter<GradleProjectAccumulator> getFormatter(JsonGenerator generator) {
+        return new JsonFormatter(generator);
     }
 
     public static class JsonFormatter implements Formatter<GradleProjectAccumulator> {
-        private final ObjectMapper mapper;
-        private final ObjectNode parent;
-        private final ObjectNode project;
-        private final ObjectNode tasks;
-
-        public JsonFormatter(ObjectMapper mapper, ObjectNode parent) {
-            this.mapper = mapper;
-            this.parent = parent;
-            this.project = mapper.createObjectNode();
-            this.tasks = mapper.createObjectNode();
+        private final JsonGenerator generator;
+
+        public JsonFormatter(JsonGenerator generator) {
+            this.generator = generator;
         }
 
         @Override
-        public void format(GradleProjectAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
-            project.put("totalNumberOfBuilds", model.totalNumberOfBuilds);
-            project.put("buildTime", formatMillis(model.totalBuildTime, shouldFormatDuration));
-            project.put("numOfUsers", model.userNames.size());
-            project.put("totalTaskExecutionTime", formatMillis(model.totalTaskExecutionTime, shouldFormatDuration));
-            project.put("totalTaskAvoidanceTime", formatMillis(model.totalTaskAvoidanceTime, shouldFormatDuration));
-            project.put("totalTaskAvoidableTime", formatMillis(model.totalTaskAvoidableTime, shouldFormatDuration));
-            project.put("totalTaskNonAvoidableTime", formatMillis(model.totalTaskNonAvoidableTime, shouldFormatDuration));
-            parent.set(model.projectName, project);
-            project.set("tasks", tasks);
-
-            applyTransforms(transforms, TaskTypeAccumulator.class, model.getTaskTypeAccumulatorMap().values().stream())
-                .forEach(task -> task.getFormatter(mapper, tasks).formatSafe(task, shouldFormatDuration, transforms));
+        public void format(GradleProjectAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
+            generator.writeObjectFieldStart(model.projectName);
+            generator.writeNumberField("totalNumberOfBuilds", model.totalNumberOfBuilds);
+            generator.writeStringField("buildTime", formatMillis(model.totalBuildTime, shouldFormatDuration));
+            generator.writeNumberField("numOfUsers", model.userNames.count());
+            generator.writeStringField("totalTaskExecutionTime", formatMillis(model.totalTaskExecutionTime, shouldFormatDuration));
+            generator.writeStringField("totalTaskAvoidanceTime", formatMillis(model.totalTaskAvoidanceTime, shouldFormatDuration));
+            generator.writeStringField("totalTaskAvoidableTime", formatMillis(model.totalTaskAvoidableTime, shouldFormatDuration));
+            generator.writeStringField("totalTaskNonAvoidableTime", formatMillis(model.totalTaskNonAvoidableTime, shouldFormatDuration));
+            formatTrend(generator, model.trend, "builds", "buildTime", shouldFormatDuration);
+
+            generator.writeObjectFieldStart("tasks");
+            applyTransforms(transforms, TaskTypeAccumulator.class, model.getTaskTypeAccumulators().stream())
+                .forEach(task -> task.getFormatter(generator).formatUnchecked(task, shouldFormatDuration, transforms));
+            generator.writeEndObject();
+
+            generator.writeEndObject();
         }
     }
 
@@ -120,14 +147,13 @@ public class GradleProjectAccumulator implements BuildAccumulator<GradleAttribut
         return "GradleProjectAccumulator{" +
             "projectName='" + projectName + '\'' +
             ", totalNumberOfBuilds=" + totalNumberOfBuilds +
-            ", userNames=" + userNames +
+            ", userNames=" + userNames.count() +
             ", totalBuildTime=" + totalBuildTime +
             ", totalTaskExecutionTime=" + totalTaskExecutionTime +
             ", totalTaskAvoidanceTime=" + totalTaskAvoidanceTime +
             ", totalTaskAvoidableTime=" + totalTaskAvoidableTime +
             ", totalTaskNonAvoidableTime=" + totalTaskNonAvoidableTime +
-            ", taskTypeAccumulatorMap=" + taskTypeAccumulatorMap +
-            ", createTaskTypeAccumulator=" + createTaskTypeAccumulator +
+            ", taskTypeAccumulators=" + getTaskTypeAccumulators() +
             '}';
     }
 }
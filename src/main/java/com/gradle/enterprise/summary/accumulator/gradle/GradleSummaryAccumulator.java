@@ -1,36 +1,49 @@
 package com.gradle.enterprise.summary.accumulator.gradle;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.Build;
 import com.gradle.enterprise.api.model.GradleAttributes;
 import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
 import com.gradle.enterprise.summary.StreamTransform;
+import com.gradle.enterprise.summary.accumulator.Mergeable;
 import com.gradle.enterprise.summary.accumulator.SummaryAccumulator;
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import com.gradle.enterprise.summary.accumulator.cardinality.DistinctCounter;
+import com.gradle.enterprise.summary.accumulator.cardinality.DistinctCounters;
+import com.gradle.enterprise.summary.accumulator.table.TimeSeries;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-import java.util.HashSet;
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
 
-public class GradleSummaryAccumulator implements SummaryAccumulator<GradleAttributes, GradleBuildCachePerformance, GradleSummaryAccumulator> {
+public class GradleSummaryAccumulator implements SummaryAccumulator<GradleAttributes, GradleBuildCachePerformance, GradleSummaryAccumulator>, Mergeable<GradleSummaryAccumulator> {
+    private static final long serialVersionUID = 3L;
 
-    private final Set<String> users = new HashSet<>();
-    private final Set<String> projects = new HashSet<>();
-    private final Set<String> ciBuildIds = new HashSet<>();
-    private final Set<String> localBuildIds = new HashSet<>();
+    private final DistinctCounter users;
+    private final DistinctCounter projects;
+    private final DistinctCounter ciBuildIds;
+    private final DistinctCounter localBuildIds;
     private final Map<String, GradleProjectAccumulator> projectAccumulatorMap = new LinkedHashMap<>();
-    private final Function<String, GradleProjectAccumulator> createProjectAccumulator;
+    private final TaskTable tasks;
+    private final DistinctCounters distinctCounters;
+    private final long trendBucketMillis;
+    private final TimeSeries trend;
 
     private int numberOfBuilds;
     private int numberOfFailedBuilds;
     private long totalBuildTime = 0L;
 
-    public GradleSummaryAccumulator() {
-        this.createProjectAccumulator = GradleProjectAccumulator::new;
+    public GradleSummaryAccumulator(SummarySettings settings) {
+        this.distinctCounters = settings.getDistinctCounters();
+        this.trendBucketMillis = settings.getTrendInterval().toMillis();
+        this.tasks = new TaskTable(settings.getMaxTrackedNames(), trendBucketMillis);
+        this.trend = new TimeSeries(trendBucketMillis);
+        this.users = distinctCounters.newCounter();
+        this.projects = distinctCounters.newCounter();
+        this.ciBuildIds = distinctCounters.newCounter();
+        this.localBuildIds = distinctCounters.newCounter();
     }
 
     public Map<String, GradleProjectAccumulator> getProjectAccumulatorMap() {
@@ -38,7 +51,7 @@ public class GradleSummaryAccumulator implements SummaryAccumulator<GradleAttrib
     }
 
     @Override
-    public synchronized void addBuild(Build build, GradleAttributes attributes, GradleBuildCachePerformance model) {
+    public void addBuild(Build build, GradleAttributes attributes, GradleBuildCachePerformance model) {
         numberOfBuilds++;
         if (attributes.getHasFailed()) {
             numberOfFailedBuilds++;
@@ -63,51 +76,73 @@ public class GradleSummaryAccumulator implements SummaryAccumulator<GradleAttrib
             projectName = "(N/A)";
         }
 
-        projectAccumulatorMap.computeIfAbsent(projectName, createProjectAccumulator)
-                .addBuild(build, attributes, model);
+        var project = projectAccumulatorMap.computeIfAbsent(projectName, this::newProjectAccumulator);
+        // The project works out the avoidable time of the build
+        long avoidableTime = project.getTotalAvoidableTime();
+        project.addBuild(build, attributes, model);
+        trend.add(build.getAvailableAt(), 1, attributes.getBuildDuration(), project.getTotalAvoidableTime() - avoidableTime);
     }
 
     @Override
-    public Formatter<GradleSummaryAccumulator> getFormatter(ObjectMapper mapper, ObjectNode parent) {
-        return new JsonFormatter(mapper, parent);
+    public void merge(GradleSummaryAccumulator other) {
+        numberOfBuilds += other.numberOfBuilds;
+        numberOfFailedBuilds += other.numberOfFailedBuilds;
+        totalBuildTime += other.totalBuildTime;
+        users.merge(other.users);
+        projects.merge(other.projects);
+        ciBuildIds.merge(other.ciBuildIds);
+        localBuildIds.merge(other.localBuildIds);
+        trend.merge(other.trend);
+
+        other.projectAccumulatorMap.forEach((projectName, project) ->
+            projectAccumulatorMap.computeIfAbsent(projectName, this::newProjectAccumulator).merge(project));
+    }
+
+    private GradleProjectAccumulator newProjectAccumulator(String projectName) {
+        return new GradleProjectAccumulator(projectName, tasks, distinctCounters.newCounter(), new TimeSeries(trendBucketMillis));
+    }
+
+    @Override
+    public Formatter<GradleSummaryAccumulator> getFormatter(JsonGenerator generator) {
+        return new JsonFormatter(generator);
     }
 
     public static class JsonFormatter implements Formatter<GradleSummaryAccumulator> {
-        private final ObjectMapper mapper;
-        private final ObjectNode parent;
-        private final ObjectNode projects;
-
-        public JsonFormatter(ObjectMapper mapper, ObjectNode parent) {
-            this.mapper = mapper;
-            this.parent = parent;
-            this.projects = mapper.createObjectNode();
+        private final JsonGenerator generator;
+
+        public JsonFormatter(JsonGenerator generator) {
+            this.generator = generator;
         }
 
         @Override
-        public void format(GradleSummaryAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
-            ObjectNode summary = mapper.createObjectNode();
-
-            summary.put("totalNumberOfBuilds", model.numberOfBuilds);
-            summary.put("totalBuildTime", formatMillis(model.totalBuildTime, shouldFormatDuration));
-            summary.put("totalNumberOfUsers", model.users.size());
-            summary.put("totalNumberOfProjects", model.projects.size());
-            parent.set("summary", summary);
-            parent.set("projects", projects);
-
+        public void format(GradleSummaryAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
+            generator.writeStartObject();
+
+            generator.writeObjectFieldStart("summary");
+            generator.writeNumberField("totalNumberOfBuilds", model.numberOfBuilds);
+            generator.writeStringField("totalBuildTime", formatMillis(model.totalBuildTime, shouldFormatDuration));
+            generator.writeNumberField("totalNumberOfUsers", model.users.count());
+            generator.writeNumberField("totalNumberOfProjects", model.projects.count());
+            formatTrend(generator, model.trend, "builds", "buildTime", shouldFormatDuration);
+            generator.writeEndObject();
+
+            generator.writeObjectFieldStart("projects");
             applyTransforms(transforms, GradleProjectAccumulator.class, model.getProjectAccumulatorMap().values().stream())
-                    .forEach(project -> project.getFormatter(mapper, projects).formatSafe(project, shouldFormatDuration, transforms));
+                .forEach(project -> project.getFormatter(generator).formatUnchecked(project, shouldFormatDuration, transforms));
+            generator.writeEndObject();
+
+            generator.writeEndObject();
         }
     }
 
     @Override
     public String toString() {
         return "GradleSummaryAccumulator{" +
-            "users=" + users +
-            ", projects=" + projects +
-            ", ciBuildIds=" + ciBuildIds +
-            ", localBuildIds=" + localBuildIds +
+            "users=" + users.count() +
+            ", projects=" + projects.count() +
+            ", ciBuildIds=" + ciBuildIds.count() +
+            ", localBuildIds=" + localBuildIds.count() +
             ", projectAccumulatorMap=" + projectAccumulatorMap +
-            ", createProjectAccumulator=" + createProjectAccumulator +
             ", numberOfBuilds=" + numberOfBuilds +
             ", numberOfFailedBuilds=" + numberOfFailedBuilds +
             ", totalBuildTime=" + totalBuildTime +
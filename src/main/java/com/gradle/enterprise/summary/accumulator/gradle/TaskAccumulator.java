@@ -1,119 +1,97 @@
 package com.gradle.enterprise.summary.accumulator.gradle;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ArrayNode;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry;
 import com.gradle.enterprise.summary.StreamTransform;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Set;
 
-import static com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry.NonCacheabilityCategoryEnum.DISABLED_TO_ENSURE_CORRECTNESS;
-import static com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry.NonCacheabilityCategoryEnum.OVERLAPPING_OUTPUTS;
+/**
+ * A view of one row of a {@link TaskTable}, which holds the counters.
+ */
+public abstract class TaskAccumulator implements Serializable {
+    private static final long serialVersionUID = 2L;
 
-public abstract class TaskAccumulator {
-    protected final String accumulatorName;
+    protected final TaskTable table;
+    protected final int row;
 
-    protected int totalExecutions = 0;
-    protected long totalTaskExecutionTime = 0;
-    protected long totalTaskAvoidanceTime = 0;
-    protected long totalTaskAvoidableTime = 0;
-    protected long totalTaskNonAvoidableTime = 0;
-    protected long cacheMiss = 0;
-
-    protected final Set<String> nonCacheabilityCategories = new HashSet<>();
-    protected final Set<String> nonCacheableBuildIds = new HashSet<>();
-
-    protected TaskAccumulator(String accumulatorName) {
-        this.accumulatorName = accumulatorName;
-    }
-
-    public void addExecution(GradleBuildCachePerformanceTaskExecutionEntry item, String buildId) {
-        totalExecutions++;
-        totalTaskExecutionTime += item.getDuration();
-        totalTaskAvoidanceTime += item.getAvoidanceSavings() != null ? item.getAvoidanceSavings() : 0;
-
-        if (isAvoidable(item)) {
-            // Note that this is not truly all 'avoidable time', as if it was coming from cache, we would get some overhead to be removed from the avoidable time
-            totalTaskAvoidableTime += item.getDuration();
-            cacheMiss++;
-        } else if (item.getAvoidanceOutcome() == GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_NOT_CACHEABLE
-            || item.getAvoidanceOutcome() == GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_UNKNOWN_CACHEABILITY) {
-            totalTaskNonAvoidableTime += item.getDuration();
-        }
-
-        if (isExecutedAvoidable(item)) {
-            nonCacheabilityCategories.add(item.getNonCacheabilityCategory().toString());
-
-            if(nonCacheableBuildIds.size() < 50) {
-                nonCacheableBuildIds.add(buildId);
-            }
-        }
+    protected TaskAccumulator(TaskTable table, int row) {
+        this.table = table;
+        this.row = row;
     }
 
-    private boolean isAvoidable(GradleBuildCachePerformanceTaskExecutionEntry item) {
-        return item.getAvoidanceOutcome() == GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_CACHEABLE
-            || isExecutedAvoidable(item);
+    public void addExecution(GradleBuildCachePerformanceTaskExecutionEntry item, String buildId, long availableAt) {
+        table.addExecution(row, item, buildId);
     }
 
-    protected boolean isExecutedAvoidable(GradleBuildCachePerformanceTaskExecutionEntry item) {
-        return item.getAvoidanceOutcome() == GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_NOT_CACHEABLE
-            && (item.getNonCacheabilityCategory() == OVERLAPPING_OUTPUTS || item.getNonCacheabilityCategory() == DISABLED_TO_ENSURE_CORRECTNESS);
+    public String getName() {
+        return table.getName(row);
     }
 
     public int getTotalExecutions() {
-        return totalExecutions;
+        return table.getExecutions(row);
     }
 
     public long getTotalAvoidableTime() {
-        return totalTaskAvoidableTime;
+        return table.getAvoidableTime(row);
     }
 
     public static class JsonFormatter<T extends TaskAccumulator> implements Formatter<T> {
-        private final ObjectMapper mapper;
-        protected final ObjectNode parent;
-        protected final ObjectNode taskSummary;
-
-        public JsonFormatter(ObjectMapper mapper, ObjectNode parent) {
-            this.mapper = mapper;
-            this.parent = parent;
-            this.taskSummary = mapper.createObjectNode();
+        protected final JsonGenerator generator;
+
+        public JsonFormatter(JsonGenerator generator) {
+            this.generator = generator;
         }
 
         @Override
-        public void format(T model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
-            taskSummary.put("totalExecutions", model.totalExecutions);
-            taskSummary.put("totalTaskExecutionTime", formatMillis(model.totalTaskExecutionTime, shouldFormatDuration));
-            taskSummary.put("totalTaskAvoidanceTime", formatMillis(model.totalTaskAvoidanceTime, shouldFormatDuration));
-            taskSummary.put("totalTaskAvoidableTime", formatMillis(model.totalTaskAvoidableTime, shouldFormatDuration));
-            taskSummary.put("totalTaskNonAvoidableTime", formatMillis(model.totalTaskNonAvoidableTime, shouldFormatDuration));
-            taskSummary.put("cacheMissRate", (model.cacheMiss * 100 / model.totalExecutions));
-
-            if (!model.nonCacheabilityCategories.isEmpty()) {
-                taskSummary.putPOJO("nonCacheabilityCategories", model.nonCacheabilityCategories);
+        public void format(T model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
+            TaskTable table = model.table;
+            int row = model.row;
+
+            generator.writeObjectFieldStart(model.getName());
+            generator.writeNumberField("totalExecutions", table.getExecutions(row));
+            generator.writeStringField("totalTaskExecutionTime", formatMillis(table.getExecutionTime(row), shouldFormatDuration));
+            generator.writeStringField("totalTaskAvoidanceTime", formatMillis(table.getAvoidanceTime(row), shouldFormatDuration));
+            generator.writeStringField("totalTaskAvoidableTime", formatMillis(table.getAvoidableTime(row), shouldFormatDuration));
+            if (table.getAvoidableTimeError(row) > 0) {
+                generator.writeStringField("totalTaskAvoidableTimeError", formatMillis(table.getAvoidableTimeError(row), shouldFormatDuration));
             }
+            generator.writeStringField("totalTaskNonAvoidableTime", formatMillis(table.getNonAvoidableTime(row), shouldFormatDuration));
+            generator.writeNumberField("cacheMissRate", (table.getCacheMisses(row) * 100 / table.getExecutions(row)));
+            formatPercentiles(generator, "taskExecutionTimePercentiles", table.getDurations(row), shouldFormatDuration);
 
-            if(!model.nonCacheableBuildIds.isEmpty()) {
-                taskSummary.putPOJO("nonCacheableBuildIds", model.nonCacheableBuildIds);
+            Set<String> nonCacheabilityCategories = table.getNonCacheabilityCategories(row);
+            if (!nonCacheabilityCategories.isEmpty()) {
+                formatStrings(generator, "nonCacheabilityCategories", nonCacheabilityCategories);
             }
 
-            parent.set(model.accumulatorName, taskSummary);
+            Set<String> nonCacheableBuildIds = table.getNonCacheableBuildIds(row);
+            if(!nonCacheableBuildIds.isEmpty()) {
+                formatStrings(generator, "nonCacheableBuildIds", nonCacheableBuildIds);
+            }
+
+            formatChildren(model, shouldFormatDuration, transforms);
+            generator.writeEndObject();
+        }
+
+        protected void formatChildren(T model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
         }
     }
 
     @Override
     public String toString() {
         return "TaskTypeAccumulator{" +
-            "name='" + accumulatorName + '\'' +
-            ", totalExecutions=" + totalExecutions +
-            ", totalTaskExecutionTime=" + totalTaskExecutionTime +
-            ", totalTaskAvoidanceTime=" + totalTaskAvoidanceTime +
-            ", totalTaskAvoidableTime=" + totalTaskAvoidableTime +
-            ", totalTaskNonAvoidableTime=" + totalTaskNonAvoidableTime +
-            ", cacheMiss=" + cacheMiss +
+            "name='" + getName() + '\'' +
+            ", totalExecutions=" + table.getExecutions(row) +
+            ", totalTaskExecutionTime=" + table.getExecutionTime(row) +
+            ", totalTaskAvoidanceTime=" + table.getAvoidanceTime(row) +
+            ", totalTaskAvoidableTime=" + table.getAvoidableTime(row) +
+            ", totalTaskNonAvoidableTime=" + table.getNonAvoidableTime(row) +
+            ", cacheMiss=" + table.getCacheMisses(row) +
             '}';
     }
 }
@@ -1,20 +1,26 @@
 package com.gradle.enterprise.summary.accumulator.gradle;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry;
+import com.gradle.enterprise.summary.accumulator.Mergeable;
 import com.gradle.enterprise.summary.accumulator.WorkUnitAccumulator;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
 
-public class TaskNameAccumulator extends TaskAccumulator implements WorkUnitAccumulator<GradleBuildCachePerformanceTaskExecutionEntry, TaskNameAccumulator> {
+public class TaskNameAccumulator extends TaskAccumulator implements WorkUnitAccumulator<GradleBuildCachePerformanceTaskExecutionEntry, TaskNameAccumulator>, Mergeable<TaskNameAccumulator> {
+    private static final long serialVersionUID = 2L;
 
-    public TaskNameAccumulator(String accumulatorName) {
-        super(accumulatorName);
+    public TaskNameAccumulator(TaskTable table, int row) {
+        super(table, row);
     }
 
     @Override
-    public Formatter<TaskNameAccumulator> getFormatter(ObjectMapper mapper, ObjectNode parent) {
-        return new JsonFormatter<>(mapper, parent);
+    public void merge(TaskNameAccumulator other) {
+        table.mergeRow(row, other.table, other.row);
+    }
+
+    @Override
+    public Formatter<TaskNameAccumulator> getFormatter(JsonGenerator generator) {
+        return new JsonFormatter<>(generator);
     }
 }
@@ -0,0 +1,148 @@
+package com.gradle.enterprise.summary.accumulator.gradle;
+
+import com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry.NonCacheabilityCategoryEnum;
+import com.gradle.enterprise.summary.accumulator.table.IntColumn;
+import com.gradle.enterprise.summary.accumulator.table.ObjectColumn;
+import com.gradle.enterprise.summary.accumulator.table.WorkUnitTable;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry.NonCacheabilityCategoryEnum.DISABLED_TO_ENSURE_CORRECTNESS;
+import static com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry.NonCacheabilityCategoryEnum.OVERLAPPING_OUTPUTS;
+
+/**
+ * The task types of the projects of a Gradle summary, with the task names of each task type as their children.
+ */
+public class TaskTable extends WorkUnitTable {
+    private static final long serialVersionUID = 1L;
+    private static final int MAX_NON_CACHEABLE_BUILD_IDS = 50;
+    private static final NonCacheabilityCategoryEnum[] CATEGORIES = NonCacheabilityCategoryEnum.values();
+
+    // One bit per category, by ordinal
+    private final IntColumn nonCacheabilityCategories = column(new IntColumn());
+    // The dictionary ids of the build ids, in the order they were added
+    private final ObjectColumn<int[]> nonCacheableBuildIds = column(new ObjectColumn<>());
+
+    /**
+     * @param maxTrackedNames   the number of task names to track per task type, or {@code 0} to track all of them
+     * @param trendBucketMillis the length of the buckets of the trends of the task types
+     */
+    public TaskTable(int maxTrackedNames, long trendBucketMillis) {
+        super(maxTrackedNames, trendBucketMillis);
+    }
+
+    /**
+     * Adds the execution to the row of its task type and to the row of its task name below it.
+     *
+     * @param availableAt when the build became available, which decides the bucket of the trend of the task type
+     */
+    public void addTaskExecution(int taskTypeRow, GradleBuildCachePerformanceTaskExecutionEntry item, String buildId, long availableAt) {
+        addExecution(taskTypeRow, item, buildId);
+        addToTrend(taskTypeRow, availableAt, item.getDuration(), isAvoidable(item));
+
+        var split = item.getTaskPath().split(":");
+        var name = split[split.length - 1];
+
+        addExecution(child(taskTypeRow, name), item, buildId);
+    }
+
+    public void addExecution(int row, GradleBuildCachePerformanceTaskExecutionEntry item, String buildId) {
+        boolean avoidable = isAvoidable(item);
+        boolean nonAvoidable = !avoidable
+            && (item.getAvoidanceOutcome() == GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_NOT_CACHEABLE
+            || item.getAvoidanceOutcome() == GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_UNKNOWN_CACHEABILITY);
+        addExecution(row, item.getDuration(), item.getAvoidanceSavings() != null ? item.getAvoidanceSavings() : 0, avoidable, nonAvoidable);
+
+        if (isExecutedAvoidable(item)) {
+            addNonCacheabilityCategory(row, item.getNonCacheabilityCategory());
+            addNonCacheableBuildId(row, buildId);
+        }
+    }
+
+    private void addNonCacheabilityCategory(int row, NonCacheabilityCategoryEnum category) {
+        nonCacheabilityCategories.set(row, nonCacheabilityCategories.get(row) | (1 << category.ordinal()));
+    }
+
+    private void addNonCacheableBuildId(int row, String buildId) {
+        int[] buildIds = nonCacheableBuildIds.get(row);
+        if (buildIds == null) {
+            buildIds = new int[0];
+        } else if (buildIds.length >= MAX_NON_CACHEABLE_BUILD_IDS) {
+            return;
+        }
+
+        int id = getDictionary().find(buildId);
+        for (int existing : buildIds) {
+            if (existing == id) {
+                return;
+            }
+        }
+        id = getDictionary().acquire(buildId);
+        buildIds = Arrays.copyOf(buildIds, buildIds.length + 1);
+        buildIds[buildIds.length - 1] = id;
+        nonCacheableBuildIds.set(row, buildIds);
+    }
+
+    @Override
+    public void mergeRow(int row, WorkUnitTable other, int otherRow) {
+        super.mergeRow(row, other, otherRow);
+
+        TaskTable otherTasks = (TaskTable) other;
+        nonCacheabilityCategories.set(row, nonCacheabilityCategories.get(row) | otherTasks.nonCacheabilityCategories.get(otherRow));
+        for (String buildId : otherTasks.getNonCacheableBuildIds(otherRow)) {
+            addNonCacheableBuildId(row, buildId);
+        }
+    }
+
+    @Override
+    protected void clearRow(int row) {
+        super.clearRow(row);
+        nonCacheabilityCategories.set(row, 0);
+        int[] buildIds = nonCacheableBuildIds.get(row);
+        if (buildIds != null) {
+            for (int id : buildIds) {
+                getDictionary().release(id);
+            }
+        }
+        nonCacheableBuildIds.set(row, null);
+    }
+
+    public Set<String> getNonCacheabilityCategories(int row) {
+        Set<String> categories = new HashSet<>();
+        int bits = nonCacheabilityCategories.get(row);
+        for (NonCacheabilityCategoryEnum category : CATEGORIES) {
+            if ((bits & (1 << category.ordinal())) != 0) {
+                categories.add(category.toString());
+            }
+        }
+        return categories;
+    }
+
+    /**
+     * @return the build ids, in a set filled in the order they were added, so that it iterates in the same order
+     * as the set they used to be collected in
+     */
+    public Set<String> getNonCacheableBuildIds(int row) {
+        Set<String> buildIds = new HashSet<>();
+        int[] ids = nonCacheableBuildIds.get(row);
+        if (ids != null) {
+            for (int id : ids) {
+                buildIds.add(getDictionary().get(id));
+            }
+        }
+        return buildIds;
+    }
+
+    private static boolean isAvoidable(GradleBuildCachePerformanceTaskExecutionEntry item) {
+        return item.getAvoidanceOutcome() == GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_CACHEABLE
+            || isExecutedAvoidable(item);
+    }
+
+    private static boolean isExecutedAvoidable(GradleBuildCachePerformanceTaskExecutionEntry item) {
+        return item.getAvoidanceOutcome() == GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_NOT_CACHEABLE
+            && (item.getNonCacheabilityCategory() == OVERLAPPING_OUTPUTS || item.getNonCacheabilityCategory() == DISABLED_TO_ENSURE_CORRECTNESS);
+    }
+}
@@ -1,62 +1,62 @@
 package com.gradle.enterprise.summary.accumulator.gradle;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry;
 import com.gradle.enterprise.summary.StreamTransform;
+import com.gradle.enterprise.summary.accumulator.Mergeable;
 import com.gradle.enterprise.summary.accumulator.WorkUnitAccumulator;
+import com.gradle.enterprise.summary.accumulator.table.WorkUnitTable;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
 
 
-public class TaskTypeAccumulator extends TaskAccumulator implements WorkUnitAccumulator<GradleBuildCachePerformanceTaskExecutionEntry, TaskTypeAccumulator> {
+public class TaskTypeAccumulator extends TaskAccumulator implements WorkUnitAccumulator<GradleBuildCachePerformanceTaskExecutionEntry, TaskTypeAccumulator>, Mergeable<TaskTypeAccumulator> {
+    private static final long serialVersionUID = 2L;
 
-    private final Map<String, TaskNameAccumulator> taskNameAccumulatorMap = new LinkedHashMap<>();
-    private final Function<String, TaskNameAccumulator> createTaskNameAccumulator = TaskNameAccumulator::new;
+    public TaskTypeAccumulator(TaskTable table, int row) {
+        super(table, row);
+    }
 
-    public TaskTypeAccumulator(String accumulatorName) {
-        super(accumulatorName);
+    public List<TaskNameAccumulator> getTaskNameAccumulators() {
+        List<TaskNameAccumulator> taskNames = new ArrayList<>();
+        for (int child = table.firstChild(row); child != WorkUnitTable.NO_ROW; child = table.nextSibling(child)) {
+            taskNames.add(new TaskNameAccumulator(table, child));
+        }
+        return taskNames;
     }
 
     @Override
-    public void addExecution(GradleBuildCachePerformanceTaskExecutionEntry item, String buildId) {
-        super.addExecution(item, buildId);
-
-        var split = item.getTaskPath().split(":");
-        var name = split[split.length - 1];
+    public void addExecution(GradleBuildCachePerformanceTaskExecutionEntry item, String buildId, long availableAt) {
+        table.addTaskExecution(row, item, buildId, availableAt);
+    }
 
-        taskNameAccumulatorMap.computeIfAbsent(name, createTaskNameAccumulator).addExecution(item, buildId);
+    @Override
+    public void merge(TaskTypeAccumulator other) {
+        table.mergeRow(row, other.table, other.row);
+        table.mergeChildren(row, other.table, other.row);
     }
 
     @Override
-    public Formatter<TaskTypeAccumulator> getFormatter(ObjectMapper mapper, ObjectNode parent) {
-        return new JsonFormatter(mapper, parent);
+    public Formatter<TaskTypeAccumulator> getFormatter(JsonGenerator generator) {
+        return new JsonFormatter(generator);
     }
 
     public static class JsonFormatter extends TaskAccumulator.JsonFormatter<TaskTypeAccumulator> {
-        private final ObjectNode tasksByName;
-        private final ObjectMapper mapper;
-
-        public JsonFormatter(ObjectMapper mapper, ObjectNode parent) {
-            super(mapper, parent);
-            this.mapper = mapper;
-            this.tasksByName = mapper.createObjectNode();
+        public JsonFormatter(JsonGenerator generator) {
+            super(generator);
         }
 
         @Override
-        public void format(TaskTypeAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
-            super.format(model, shouldFormatDuration, transforms);
-
-            taskSummary.set("tasksByName", tasksByName);
+        protected void formatChildren(TaskTypeAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
+            formatTrend(generator, model.table.getTrend(model.row), "executions", "executionTime", shouldFormatDuration);
 
-            applyTransforms(transforms, TaskNameAccumulator.class, model.taskNameAccumulatorMap.values().stream())
-                .forEach(task -> task.getFormatter(mapper, tasksByName).formatSafe(task, shouldFormatDuration, transforms));
+            generator.writeObjectFieldStart("tasksByName");
+            applyTransforms(transforms, TaskNameAccumulator.class, model.getTaskNameAccumulators().stream())
+                .forEach(task -> task.getFormatter(generator).formatUnchecked(task, shouldFormatDuration, transforms));
+            generator.writeEndObject();
         }
     }
 }
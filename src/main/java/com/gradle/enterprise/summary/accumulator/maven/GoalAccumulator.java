@@ -1,88 +1,92 @@
 package com.gradle.enterprise.summary.accumulator.maven;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.MavenBuildCachePerformanceGoalExecutionEntry;
 import com.gradle.enterprise.summary.StreamTransform;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
+import java.io.IOException;
+import java.io.Serializable;
 import java.util.List;
 
 
-public class GoalAccumulator {
+/**
+ * A view of one row of a {@link GoalTable}, which holds the counters.
+ */
+public class GoalAccumulator implements Serializable {
+    private static final long serialVersionUID = 2L;
 
-    protected final String accumulatorName;
+    protected final GoalTable table;
+    protected final int row;
 
-    protected int totalExecutions = 0;
-    protected long totalGoalExecutionTime = 0;
-    protected long totalGoalAvoidanceTime = 0;
-    protected long totalGoalAvoidableTime = 0;
-    protected long totalGoalNonAvoidableTime = 0;
-    protected long cacheMiss = 0;
+    public GoalAccumulator(GoalTable table, int row) {
+        this.table = table;
+        this.row = row;
+    }
 
-    public GoalAccumulator(String accumulatorName) {
-        this.accumulatorName = accumulatorName;
+    public void addExecution(MavenBuildCachePerformanceGoalExecutionEntry item, String buildId, long availableAt) {
+        table.addExecution(row, item);
     }
 
-    public void addExecution(MavenBuildCachePerformanceGoalExecutionEntry item, String buildId) {
-        totalExecutions++;
-        totalGoalExecutionTime += item.getDuration();
-        totalGoalAvoidanceTime += item.getAvoidanceSavings() != null ? item.getAvoidanceSavings() : 0;
-        if (item.getAvoidanceOutcome() == MavenBuildCachePerformanceGoalExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_CACHEABLE) {
-            // Note that this is not truly all 'avoidable time', as if it was coming from cache, we would get some overhead to be removed from the avoidable time
-            totalGoalAvoidableTime += item.getDuration();
-            cacheMiss++;
-        }
-        if (item.getAvoidanceOutcome() == MavenBuildCachePerformanceGoalExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_NOT_CACHEABLE
-                || item.getAvoidanceOutcome() == MavenBuildCachePerformanceGoalExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_UNKNOWN_CACHEABILITY) {
-            totalGoalNonAvoidableTime += item.getDuration();
-        }
+    public String getName() {
+        return table.getName(row);
     }
 
     public int getTotalExecutions() {
-        return totalExecutions;
+        return table.getExecutions(row);
     }
 
     public long getTotalAvoidableTime() {
-        return totalGoalAvoidableTime;
+        return table.getAvoidableTime(row);
     }
 
     public long getAverageExecutionTime() {
-        return totalGoalExecutionTime / totalExecutions;
+        return table.getExecutionTime(row) / table.getExecutions(row);
     }
 
     public static class JsonFormatter<T extends GoalAccumulator> implements Formatter<T> {
-        protected final ObjectNode parent;
-        protected final ObjectNode goalSummary;
+        protected final JsonGenerator generator;
 
-        public JsonFormatter(ObjectMapper mapper, ObjectNode parent) {
-            this.parent = parent;
-            this.goalSummary = mapper.createObjectNode();
+        public JsonFormatter(JsonGenerator generator) {
+            this.generator = generator;
         }
 
         @Override
-        public void format(T model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
-            goalSummary.put("totalExecutions", model.totalExecutions);
-            goalSummary.put("totalGoalExecutionTime", formatMillis(model.totalGoalExecutionTime, shouldFormatDuration));
-            goalSummary.put("averageGoalExecutionTime", formatMillis(model.getAverageExecutionTime(), shouldFormatDuration));
-            goalSummary.put("totalGoalAvoidanceTime", formatMillis(model.totalGoalAvoidanceTime, shouldFormatDuration));
-            goalSummary.put("totalGoalAvoidableTime", formatMillis(model.totalGoalAvoidableTime, shouldFormatDuration));
-            goalSummary.put("totalGoalNonAvoidableTime", formatMillis(model.totalGoalNonAvoidableTime, shouldFormatDuration));
-            goalSummary.put("cacheMissRate", (model.cacheMiss * 100 / model.totalExecutions));
-            parent.set(model.accumulatorName, goalSummary);
+        public void format(T model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
+            GoalTable table = model.table;
+            int row = model.row;
+
+            generator.writeObjectFieldStart(model.getName());
+            generator.writeNumberField("totalExecutions", table.getExecutions(row));
+            generator.writeStringField("totalGoalExecutionTime", formatMillis(table.getExecutionTime(row), shouldFormatDuration));
+            generator.writeStringField("averageGoalExecutionTime", formatMillis(model.getAverageExecutionTime(), shouldFormatDuration));
+            generator.writeStringField("totalGoalAvoidanceTime", formatMillis(table.getAvoidanceTime(row), shouldFormatDuration));
+            generator.writeStringField("totalGoalAvoidableTime", formatMillis(table.getAvoidableTime(row), shouldFormatDuration));
+            if (table.getAvoidableTimeError(row) > 0) {
+                generator.writeStringField("totalGoalAvoidableTimeError", formatMillis(table.getAvoidableTimeError(row), shouldFormatDuration));
+            }
+            generator.writeStringField("totalGoalNonAvoidableTime", formatMillis(table.getNonAvoidableTime(row), shouldFormatDuration));
+            generator.writeNumberField("cacheMissRate", (table.getCacheMisses(row) * 100 / table.getExecutions(row)));
+            formatPercentiles(generator, "goalExecutionTimePercentiles", table.getDurations(row), shouldFormatDuration);
+
+            formatChildren(model, shouldFormatDuration, transforms);
+            generator.writeEndObject();
+        }
+
+        protected void formatChildren(T model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
         }
     }
 
     @Override
     public String toString() {
         return "GoalTypeAccumulator{" +
-            "goalName='" + accumulatorName + '\'' +
-            ", totalExecutions=" + totalExecutions +
-            ", totalGoalExecutionTime=" + totalGoalExecutionTime +
-            ", totalGoalAvoidanceTime=" + totalGoalAvoidanceTime +
-            ", totalGoalAvoidableTime=" + totalGoalAvoidableTime +
-            ", totalGoalNonAvoidableTime=" + totalGoalNonAvoidableTime +
-            ", cacheMiss=" + cacheMiss +
+            "goalName='" + getName() + '\'' +
+            ", totalExecutions=" + table.getExecutions(row) +
+            ", totalGoalExecutionTime=" + table.getExecutionTime(row) +
+            ", totalGoalAvoidanceTime=" + table.getAvoidanceTime(row) +
+            ", totalGoalAvoidableTime=" + table.getAvoidableTime(row) +
+            ", totalGoalNonAvoidableTime=" + table.getNonAvoidableTime(row) +
+            ", cacheMiss=" + table.getCacheMisses(row) +
             '}';
     }
 }
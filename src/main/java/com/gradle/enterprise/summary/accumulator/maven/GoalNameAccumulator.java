@@ -1,39 +1,26 @@
 package com.gradle.enterprise.summary.accumulator.maven;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.MavenBuildCachePerformanceGoalExecutionEntry;
-import com.gradle.enterprise.summary.StreamTransform;
+import com.gradle.enterprise.summary.accumulator.Mergeable;
 import com.gradle.enterprise.summary.accumulator.WorkUnitAccumulator;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
 
+public class GoalNameAccumulator extends GoalAccumulator implements WorkUnitAccumulator<MavenBuildCachePerformanceGoalExecutionEntry, GoalNameAccumulator>, Mergeable<GoalNameAccumulator> {
+    private static final long serialVersionUID = 2L;
 
-public class GoalNameAccumulator extends GoalAccumulator implements WorkUnitAccumulator<MavenBuildCachePerformanceGoalExecutionEntry, GoalNameAccumulator> {
-
-    public GoalNameAccumulator(String accumulatorName) {
-        super(accumulatorName);
+    public GoalNameAccumulator(GoalTable table, int row) {
+        super(table, row);
     }
 
     @Override
-    public Formatter<GoalNameAccumulator> getFormatter(ObjectMapper mapper, ObjectNode parent) {
-        return new JsonFormatter<>(mapper, parent);
+    public void merge(GoalNameAccumulator other) {
+        table.mergeRow(row, other.table, other.row);
     }
 
     @Override
-    public String toString() {
-        return "GoalTypeAccumulator{" +
-            "goalName='" + accumulatorName + '\'' +
-            ", totalExecutions=" + totalExecutions +
-            ", totalGoalExecutionTime=" + totalGoalExecutionTime +
-            ", totalGoalAvoidanceTime=" + totalGoalAvoidanceTime +
-            ", totalGoalAvoidableTime=" + totalGoalAvoidableTime +
-            ", totalGoalNonAvoidableTime=" + totalGoalNonAvoidableTime +
-            ", cacheMiss=" + cacheMiss +
-            '}';
+    public Formatter<GoalNameAccumulator> getFormatter(JsonGenerator generator) {
+        return new JsonFormatter<>(generator);
     }
 }
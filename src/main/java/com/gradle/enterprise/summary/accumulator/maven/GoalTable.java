@@ -0,0 +1,45 @@
+package com.gradle.enterprise.summary.accumulator.maven;
+
+import com.gradle.enterprise.api.model.MavenBuildCachePerformanceGoalExecutionEntry;
+import com.gradle.enterprise.summary.accumulator.table.WorkUnitTable;
+
+/**
+ * The goal types of the projects of a Maven summary, with the goal names of each goal type as their children.
+ */
+public class GoalTable extends WorkUnitTable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * @param maxTrackedNames   the number of goal names to track per goal type, or {@code 0} to track all of them
+     * @param trendBucketMillis the length of the buckets of the trends of the goal types
+     */
+    public GoalTable(int maxTrackedNames, long trendBucketMillis) {
+        super(maxTrackedNames, trendBucketMillis);
+    }
+
+    /**
+     * Adds the execution to the row of its goal type and to the row of its goal name below it.
+     *
+     * @param availableAt when the build became available, which decides the bucket of the trend of the goal type
+     */
+    public void addGoalExecution(int goalTypeRow, MavenBuildCachePerformanceGoalExecutionEntry item, long availableAt) {
+        addExecution(goalTypeRow, item);
+        addToTrend(goalTypeRow, availableAt, item.getDuration(), isAvoidable(item));
+
+        var split = item.getGoalName().split(":");
+        var name = split[split.length - 1];
+
+        addExecution(child(goalTypeRow, name), item);
+    }
+
+    public void addExecution(int row, MavenBuildCachePerformanceGoalExecutionEntry item) {
+        boolean avoidable = isAvoidable(item);
+        boolean nonAvoidable = item.getAvoidanceOutcome() == MavenBuildCachePerformanceGoalExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_NOT_CACHEABLE
+            || item.getAvoidanceOutcome() == MavenBuildCachePerformanceGoalExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_UNKNOWN_CACHEABILITY;
+        addExecution(row, item.getDuration(), item.getAvoidanceSavings() != null ? item.getAvoidanceSavings() : 0, avoidable, nonAvoidable);
+    }
+
+    private static boolean isAvoidable(MavenBuildCachePerformanceGoalExecutionEntry item) {
+        return item.getAvoidanceOutcome() == MavenBuildCachePerformanceGoalExecutionEntry.AvoidanceOutcomeEnum.EXECUTED_CACHEABLE;
+    }
+}
@@ -1,72 +1,75 @@
 package com.gradle.enterprise.summary.accumulator.maven;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.MavenBuildCachePerformanceGoalExecutionEntry;
 import com.gradle.enterprise.summary.StreamTransform;
+import com.gradle.enterprise.summary.accumulator.Mergeable;
 import com.gradle.enterprise.summary.accumulator.WorkUnitAccumulator;
+import com.gradle.enterprise.summary.accumulator.table.WorkUnitTable;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.function.Function;
 
 
-public class GoalTypeAccumulator extends GoalAccumulator implements WorkUnitAccumulator<MavenBuildCachePerformanceGoalExecutionEntry, GoalTypeAccumulator> {
+public class GoalTypeAccumulator extends GoalAccumulator implements WorkUnitAccumulator<MavenBuildCachePerformanceGoalExecutionEntry, GoalTypeAccumulator>, Mergeable<GoalTypeAccumulator> {
+    private static final long serialVersionUID = 2L;
 
-    private final Map<String, GoalNameAccumulator> goalNameAccumulatorMap = new LinkedHashMap<>();
-    private final Function<String, GoalNameAccumulator> createGoalNameAccumulator = GoalNameAccumulator::new;
+    public GoalTypeAccumulator(GoalTable table, int row) {
+        super(table, row);
+    }
 
-    public GoalTypeAccumulator(String accumulatorName) {
-        super(accumulatorName);
+    public List<GoalNameAccumulator> getGoalNameAccumulators() {
+        List<GoalNameAccumulator> goalNames = new ArrayList<>();
+        for (int child = table.firstChild(row); child != WorkUnitTable.NO_ROW; child = table.nextSibling(child)) {
+            goalNames.add(new GoalNameAccumulator(table, child));
+        }
+        return goalNames;
     }
 
     @Override
-    public void addExecution(MavenBuildCachePerformanceGoalExecutionEntry item, String buildId) {
-        super.addExecution(item, buildId);
+    public void addExecution(MavenBuildCachePerformanceGoalExecutionEntry item, String buildId, long availableAt) {
+        table.addGoalExecution(row, item, availableAt);
+    }
 
-        var split = item.getGoalName().split(":");
-        var name = split[split.length - 1];
-        goalNameAccumulatorMap.computeIfAbsent(name, createGoalNameAccumulator).addExecution(item, buildId);
+    @Override
+    public void merge(GoalTypeAccumulator other) {
+        table.mergeRow(row, other.table, other.row);
+        table.mergeChildren(row, other.table, other.row);
     }
 
     @Override
-    public Formatter<GoalTypeAccumulator> getFormatter(ObjectMapper mapper, ObjectNode parent) {
-        return new JsonFormatter(mapper, parent);
+    public Formatter<GoalTypeAccumulator> getFormatter(JsonGenerator generator) {
+        return new JsonFormatter(generator);
     }
 
     public static class JsonFormatter extends GoalAccumulator.JsonFormatter<GoalTypeAccumulator> {
-        private final ObjectNode goalsByName;
-        private final ObjectMapper mapper;
-
-        public JsonFormatter(ObjectMapper mapper, ObjectNode parent) {
-            super(mapper, parent);
-            this.goalsByName = mapper.createObjectNode();
-            this.mapper = mapper;
+        public JsonFormatter(JsonGenerator generator) {
+            super(generator);
         }
 
         @Override
-        public void format(GoalTypeAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
-            super.format(model, shouldFormatDuration, transforms);
-
-            goalSummary.set("goalsByName", goalsByName);
+        protected void formatChildren(GoalTypeAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
+            formatTrend(generator, model.table.getTrend(model.row), "executions", "executionTime", shouldFormatDuration);
 
-            applyTransforms(transforms, GoalNameAccumulator.class, model.goalNameAccumulatorMap.values().stream())
-                .forEach(task -> task.getFormatter(mapper, goalsByName).formatSafe(task, shouldFormatDuration, transforms));
+            generator.writeObjectFieldStart("goalsByName");
+            applyTransforms(transforms, GoalNameAccumulator.class, model.getGoalNameAccumulators().stream())
+                .forEach(task -> task.getFormatter(generator).formatUnchecked(task, shouldFormatDuration, transforms));
+            generator.writeEndObject();
         }
     }
 
     @Override
     public String toString() {
         return "GoalTypeAccumulator{" +
-            "goalType='" + accumulatorName + '\'' +
-            ", totalExecutions=" + totalExecutions +
-            ", totalGoalExecutionTime=" + totalGoalExecutionTime +
-            ", totalGoalAvoidanceTime=" + totalGoalAvoidanceTime +
-            ", totalGoalAvoidableTime=" + totalGoalAvoidableTime +
-            ", totalGoalNonAvoidableTime=" + totalGoalNonAvoidableTime +
-            ", cacheMiss=" + cacheMiss +
+            "goalType='" + getName() + '\'' +
+            ", totalExecutions=" + table.getExecutions(row) +
+            ", totalGoalExecutionTime=" + table.getExecutionTime(row) +
+            ", totalGoalAvoidanceTime=" + table.getAvoidanceTime(row) +
+            ", totalGoalAvoidableTime=" + table.getAvoidableTime(row) +
+            ", totalGoalNonAvoidableTime=" + table.getNonAvoidableTime(row) +
+            ", cacheMiss=" + table.getCacheMisses(row) +
             '}';
     }
 }
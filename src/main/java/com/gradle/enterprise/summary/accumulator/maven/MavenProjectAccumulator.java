@@ -1,29 +1,31 @@
 package com.gradle.enterprise.summary.accumulator.maven;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.Build;
 import com.gradle.enterprise.api.model.MavenAttributes;
 import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
 import com.gradle.enterprise.api.model.MavenBuildCachePerformanceGoalExecutionEntry;
 import com.gradle.enterprise.summary.StreamTransform;
 import com.gradle.enterprise.summary.accumulator.BuildAccumulator;
+import com.gradle.enterprise.summary.accumulator.Mergeable;
+import com.gradle.enterprise.summary.accumulator.cardinality.DistinctCounter;
+import com.gradle.enterprise.summary.accumulator.table.TimeSeries;
+import com.gradle.enterprise.summary.accumulator.table.WorkUnitTable;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-import java.util.HashSet;
-import java.util.LinkedHashMap;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
-public class MavenProjectAccumulator implements BuildAccumulator<MavenAttributes, MavenBuildCachePerformance, MavenProjectAccumulator> {
+public class MavenProjectAccumulator implements BuildAccumulator<MavenAttributes, MavenBuildCachePerformance, MavenProjectAccumulator>, Mergeable<MavenProjectAccumulator> {
+    private static final long serialVersionUID = 3L;
 
     private final String projectName;
-    private final Set<String> userNames = new HashSet<>();
-    private final Map<String, GoalTypeAccumulator> goalTypeAccumulatorMap = new LinkedHashMap<>();
-    private final Function<String, GoalTypeAccumulator> createGoalTypeAccumulator;
+    private final GoalTable goals;
+    private final int goalsRow;
+    private final DistinctCounter userNames;
+    private final TimeSeries trend;
 
     private int totalNumberOfBuilds = 0;
     private long totalBuildTime = 0;
@@ -32,13 +34,25 @@ public class MavenProjectAccumulator implements BuildAccumulator<MavenAttributes
     private long totalGoalAvoidableTime = 0;
     private long totalGoalNonAvoidableTime = 0;
 
-    public MavenProjectAccumulator(String projectName) {
+    /**
+     * @param goals the table to keep the goal types and goal names of the project in, shared by all projects of a summary
+     * @param userNames the counter of the distinct users of the project
+     * @param trend the series to keep the builds of the project over time in
+     */
+    public MavenProjectAccumulator(String projectName, GoalTable goals, DistinctCounter userNames, TimeSeries trend) {
         this.projectName = projectName;
-        this.createGoalTypeAccumulator = GoalTypeAccumulator::new;
+        this.userNames = userNames;
+        this.trend = trend;
+        this.goals = goals;
+        this.goalsRow = goals.addRoot();
     }
 
-    public Map<String, GoalTypeAccumulator> getGoalTypeAccumulatorMap() {
-        return goalTypeAccumulatorMap;
+    public List<GoalTypeAccumulator> getGoalTypeAccumulators() {
+        List<GoalTypeAccumulator> goalTypes = new ArrayList<>();
+        for (int child = goals.firstChild(goalsRow); child != WorkUnitTable.NO_ROW; child = goals.nextSibling(child)) {
+            goalTypes.add(new GoalTypeAccumulator(goals, child));
+        }
+        return goalTypes;
     }
 
     public long getTotalAvoidableTime() {
@@ -53,13 +67,29 @@ public class MavenProjectAccumulator implements BuildAccumulator<MavenAttributes
 
         totalGoalExecutionTime += model.getEffectiveProjectExecutionTime();
         totalGoalAvoidanceTime += model.getAvoidanceSavingsSummary().getTotal();
-        totalGoalAvoidableTime += getGoalAvoidableTime(model.getGoalExecution());
+        long goalAvoidableTime = getGoalAvoidableTime(model.getGoalExecution());
+        totalGoalAvoidableTime += goalAvoidableTime;
         totalGoalNonAvoidableTime += getGoalNonAvoidableTime(model.getGoalExecution());
-        addGoalTypes(model.getGoalExecution(), build.getId());
+        trend.add(build.getAvailableAt(), 1, model.getBuildTime(), goalAvoidableTime);
+        addGoalTypes(model.getGoalExecution(), build.getId(), build.getAvailableAt());
     }
 
-    private void addGoalTypes(List<MavenBuildCachePerformanceGoalExecutionEntry> goalExecutions, String buildId) {
-        goalExecutions.forEach(item -> goalTypeAccumulatorMap.computeIfAbsent(item.getMojoType(), createGoalTypeAccumulator).addExecution(item, buildId));
+    private void addGoalTypes(List<MavenBuildCachePerformanceGoalExecutionEntry> goalExecutions, String buildId, long availableAt) {
+        goalExecutions.forEach(item -> goals.addGoalExecution(goals.child(goalsRow, item.getMojoType()), item, availableAt));
+    }
+
+    @Override
+    public void merge(MavenProjectAccumulator other) {
+        totalNumberOfBuilds += other.totalNumberOfBuilds;
+        userNames.merge(other.userNames);
+        totalBuildTime += other.totalBuildTime;
+        totalGoalExecutionTime += other.totalGoalExecutionTime;
+        totalGoalAvoidanceTime += other.totalGoalAvoidanceTime;
+        totalGoalAvoidableTime += other.totalGoalAvoidableTime;
+        totalGoalNonAvoidableTime += other.totalGoalNonAvoidableTime;
+        trend.merge(other.trend);
+
+        goals.mergeChildren(goalsRow, other.goals, other.goalsRow);
     }
 
     long getGoalAvoidableTime(List<MavenBuildCachePerformanceGoalExecutionEntry> goalExecution) {
@@ -80,37 +110,35 @@ public class MavenProjectAccumulator implements BuildAccumulator<MavenAttributes
     }
 
     @Override
-    public Formatter<MavenProjectAccumulator> getFormatter(ObjectMapper mapper, ObjectNode parent) {
-        return new JsonFormatter(mapper, parent);
+    public Formatter<MavenProjectAccumulator> getFormatter(JsonGenerator generator) {
+        return new JsonFormatter(generator);
     }
 
     public static class JsonFormatter implements Formatter<MavenProjectAccumulator> {
-        private final ObjectMapper mapper;
-        private final ObjectNode parent;
-        private final ObjectNode project;
-        private final ObjectNode goals;
-
-        public JsonFormatter(ObjectMapper mapper, ObjectNode parent) {
-            this.mapper = mapper;
-            this.parent = parent;
-            this.project = mapper.createObjectNode();
-            this.goals = mapper.createObjectNode();
+        private final JsonGenerator generator;
+
+        public JsonFormatter(JsonGenerator generator) {
+            this.generator = generator;
         }
 
         @Override
-        public void format(MavenProjectAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
-            project.put("totalNumberOfBuilds", model.totalNumberOfBuilds);
-            project.put("buildTime", formatMillis(model.totalBuildTime, shouldFormatDuration));
-            project.put("numOfUsers", model.userNames.size());
-            project.put("totalGoalExecutionTime", formatMillis(model.totalGoalExecutionTime, shouldFormatDuration));
-            project.put("totalGoalAvoidanceTime", formatMillis(model.totalGoalAvoidanceTime, shouldFormatDuration));
-            project.put("totalGoalAvoidableTime", formatMillis(model.totalGoalAvoidableTime, shouldFormatDuration));
-            project.put("totalGoalNonAvoidableTime", formatMillis(model.totalGoalNonAvoidableTime, shouldFormatDuration));
-            parent.set(model.projectName, project);
-            project.set("goals", goals);
-
-            applyTransforms(transforms, GoalTypeAccumulator.class, model.getGoalTypeAccumulatorMap().values().stream())
-                .forEach(goal -> goal.getFormatter(mapper, goals).formatSafe(goal, shouldFormatDuration, transforms));
+        public void format(MavenProjectAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
+            generator.writeObjectFieldStart(model.projectName);
+            generator.writeNumberField("totalNumberOfBuilds", model.totalNumberOfBuilds);
+            generator.writeStringField("buildTime", formatMillis(model.totalBuildTime, shouldFormatDuration));
+            generator.writeNumberField("numOfUsers", model.userNames.count());
+            generator.writeStringField("totalGoalExecutionTime", formatMillis(model.totalGoalExecutionTime, shouldFormatDuration));
+            generator.writeStringField("totalGoalAvoidanceTime", formatMillis(model.totalGoalAvoidanceTime, shouldFormatDuration));
+            generator.writeStringField("totalGoalAvoidableTime", formatMillis(model.totalGoalAvoidableTime, shouldFormatDuration));
+            generator.writeStringField("totalGoalNonAvoidableTime", formatMillis(model.totalGoalNonAvoidableTime, shouldFormatDuration));
+            formatTrend(generator, model.trend, "builds", "buildTime", shouldFormatDuration);
+
+            generator.writeObjectFieldStart("goals");
+            applyTransforms(transforms, GoalTypeAccumulator.class, model.getGoalTypeAccumulators().stream())
+                .forEach(goal -> goal.getFormatter(generator).formatUnchecked(goal, shouldFormatDuration, transforms));
+            generator.writeEndObject();
+
+            generator.writeEndObject();
         }
     }
 
@@ -118,9 +146,8 @@ public class MavenProjectAccumulator implements BuildAccumulator<MavenAttributes
     public String toString() {
         return "MavenProjectAccumulator{" +
             "projectName='" + projectName + '\'' +
-            ", userNames=" + userNames +
-            ", goalTypeAccumulatorMap=" + goalTypeAccumulatorMap +
-            ", createGoalTypeAccumulator=" + createGoalTypeAccumulator +
+            ", userNames=" + userNames.count() +
+            ", goalTypeAccumulators=" + getGoalTypeAccumulators() +
             ", totalNumberOfBuilds=" + totalNumberOfBuilds +
             ", totalBuildTime=" + totalBuildTime +
             ", totalGoalExecutionTime=" + totalGoalExecutionTime +
@@ -1,39 +1,51 @@
 package com.gradle.enterprise.summary.accumulator.maven;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.api.model.Build;
 import com.gradle.enterprise.api.model.MavenAttributes;
 import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
 import com.gradle.enterprise.summary.StreamTransform;
+import com.gradle.enterprise.summary.accumulator.Mergeable;
 import com.gradle.enterprise.summary.accumulator.SummaryAccumulator;
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import com.gradle.enterprise.summary.accumulator.cardinality.DistinctCounter;
+import com.gradle.enterprise.summary.accumulator.cardinality.DistinctCounters;
+import com.gradle.enterprise.summary.accumulator.table.TimeSeries;
 import com.gradle.enterprise.summary.formatting.Formatter;
 
-import java.util.HashSet;
+import java.io.IOException;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-import java.util.function.Function;
 
-public class MavenSummaryAccumulator implements SummaryAccumulator<MavenAttributes, MavenBuildCachePerformance, MavenSummaryAccumulator> {
+public class MavenSummaryAccumulator implements SummaryAccumulator<MavenAttributes, MavenBuildCachePerformance, MavenSummaryAccumulator>, Mergeable<MavenSummaryAccumulator> {
+    private static final long serialVersionUID = 3L;
 
     private int numberOfBuilds;
 
     private int numberOfFailedBuilds;
-    private final Set<String> users = new HashSet<>();
-    private final Set<String> projects = new HashSet<>();
+    private final DistinctCounter users;
+    private final DistinctCounter projects;
     private long totalBuildTime = 0L;
 
-    private final Set<String> ciBuildIds = new HashSet<>();
-    private final Set<String> localBuildIds = new HashSet<>();
+    private final DistinctCounter ciBuildIds;
+    private final DistinctCounter localBuildIds;
 
     private final Map<String, MavenProjectAccumulator> projectAccumulatorMap = new LinkedHashMap<>();
-
-    private final Function<String, MavenProjectAccumulator> createProjectAccumulator;
-
-    public MavenSummaryAccumulator() {
-        this.createProjectAccumulator = MavenProjectAccumulator::new;
+    private final GoalTable goals;
+    private final DistinctCounters distinctCounters;
+    private final long trendBucketMillis;
+    private final TimeSeries trend;
+
+    public MavenSummaryAccumulator(SummarySettings settings) {
+        this.distinctCounters = settings.getDistinctCounters();
+        this.trendBucketMillis = settings.getTrendInterval().toMillis();
+        this.goals = new GoalTable(settings.getMaxTrackedNames(), trendBucketMillis);
+        this.trend = new TimeSeries(trendBucketMillis);
+        this.users = distinctCounters.newCounter();
+        this.projects = distinctCounters.newCounter();
+        this.ciBuildIds = distinctCounters.newCounter();
+        this.localBuildIds = distinctCounters.newCounter();
     }
 
     public int getNumberOfBuilds() {
@@ -45,7 +57,7 @@ public class MavenSummaryAccumulator implements SummaryAccumulator<MavenAttribut
     }
 
     @Override
-    public synchronized void addBuild(Build build, MavenAttributes attributes, MavenBuildCachePerformance model) {
+    public void addBuild(Build build, MavenAttributes attributes, MavenBuildCachePerformance model) {
         numberOfBuilds++;
         if (attributes.getHasFailed()) {
             numberOfFailedBuilds++;
@@ -70,39 +82,62 @@ public class MavenSummaryAccumulator implements SummaryAccumulator<MavenAttribut
             projectName = "(N/A)";
         }
 
-        projectAccumulatorMap.computeIfAbsent(projectName, createProjectAccumulator)
-            .addBuild(build, attributes, model);
+        var project = projectAccumulatorMap.computeIfAbsent(projectName, this::newProjectAccumulator);
+        // The project works out the avoidable time of the build
+        long avoidableTime = project.getTotalAvoidableTime();
+        project.addBuild(build, attributes, model);
+        trend.add(build.getAvailableAt(), 1, attributes.getBuildDuration(), project.getTotalAvoidableTime() - avoidableTime);
     }
 
     @Override
-    public Formatter<MavenSummaryAccumulator> getFormatter(ObjectMapper mapper, ObjectNode parent) {
-        return new JsonFormatter(mapper, parent);
+    public void merge(MavenSummaryAccumulator other) {
+        numberOfBuilds += other.numberOfBuilds;
+        numberOfFailedBuilds += other.numberOfFailedBuilds;
+        totalBuildTime += other.totalBuildTime;
+        users.merge(other.users);
+        projects.merge(other.projects);
+        ciBuildIds.merge(other.ciBuildIds);
+        localBuildIds.merge(other.localBuildIds);
+        trend.merge(other.trend);
+
+        other.projectAccumulatorMap.forEach((projectName, project) ->
+            projectAccumulatorMap.computeIfAbsent(projectName, this::newProjectAccumulator).merge(project));
+    }
+
+    private MavenProjectAccumulator newProjectAccumulator(String projectName) {
+        return new MavenProjectAccumulator(projectName, goals, distinctCounters.newCounter(), new TimeSeries(trendBucketMillis));
+    }
+
+    @Override
+    public Formatter<MavenSummaryAccumulator> getFormatter(JsonGenerator generator) {
+        return new JsonFormatter(generator);
     }
 
     public static class JsonFormatter implements Formatter<MavenSummaryAccumulator> {
-        private final ObjectMapper mapper;
-        private final ObjectNode parent;
-        private final ObjectNode projects;
-
-        public JsonFormatter(ObjectMapper mapper, ObjectNode parent) {
-            this.mapper = mapper;
-            this.parent = parent;
-            this.projects = mapper.createObjectNode();
+        private final JsonGenerator generator;
+
+        public JsonFormatter(JsonGenerator generator) {
+            this.generator = generator;
         }
 
         @Override
-        public void format(MavenSummaryAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
-            ObjectNode summary = mapper.createObjectNode();
-
-            summary.put("totalNumberOfBuilds", model.numberOfBuilds);
-            summary.put("totalBuildTime", formatMillis(model.totalBuildTime, shouldFormatDuration));
-            summary.put("totalNumberOfUsers", model.users.size());
-            summary.put("totalNumberOfProjects", model.projects.size());
-            parent.set("summary", summary);
-            parent.set("projects", projects);
-
+        public void format(MavenSummaryAccumulator model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException {
+            generator.writeStartObject();
+
+            generator.writeObjectFieldStart("summary");
+            generator.writeNumberField("totalNumberOfBuilds", model.numberOfBuilds);
+            generator.writeStringField("totalBuildTime", formatMillis(model.totalBuildTime, shouldFormatDuration));
+            generator.writeNumberField("totalNumberOfUsers", model.users.count());
+            generator.writeNumberField("totalNumberOfProjects", model.projects.count());
+            formatTrend(generator, model.trend, "builds", "buildTime", shouldFormatDuration);
+            generator.writeEndObject();
+
+            generator.writeObjectFieldStart("projects");
             applyTransforms(transforms, MavenProjectAccumulator.class, model.getProjectAccumulatorMap().values().stream())
-                .forEach(project -> project.getFormatter(mapper, projects).formatSafe(project, shouldFormatDuration, transforms));
+                .forEach(project -> project.getFormatter(generator).formatUnchecked(project, shouldFormatDuration, transforms));
+            generator.writeEndObject();
+
+            generator.writeEndObject();
         }
     }
 
@@ -111,13 +146,12 @@ public class MavenSummaryAccumulator implements SummaryAccumulator<MavenAttribut
         return "MavenSummaryAccumulator{" +
             "numberOfBuilds=" + numberOfBuilds +
             ", numberOfFailedBuilds=" + numberOfFailedBuilds +
-            ", users=" + users +
-            ", projects=" + projects +
+            ", users=" + users.count() +
+            ", projects=" + projects.count() +
             ", totalBuildTime=" + totalBuildTime +
-            ", ciBuildIds=" + ciBuildIds +
-            ", localBuildIds=" + localBuildIds +
+            ", ciBuildIds=" + ciBuildIds.count() +
+            ", localBuildIds=" + localBuildIds.count() +
             ", projectAccumulatorMap=" + projectAccumulatorMap +
-            ", createProjectAccumulator=" + createProjectAccumulator +
             '}';
     }
 }
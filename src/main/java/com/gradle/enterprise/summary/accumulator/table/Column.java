@@ -0,0 +1,24 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import java.io.Serializable;
+
+/**
+ * The values of one field for all rows of a table, stored in fixed-size chunks
+ * so that growing the column never copies the values that are already there.
+ */
+public abstract class Column implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    static final int CHUNK_BITS = 8;
+    static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * Makes room for at least the given number of rows, which start out as zero.
+     */
+    public abstract void grow(int rows);
+
+    static int chunksFor(int rows) {
+        return (rows + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+    }
+}
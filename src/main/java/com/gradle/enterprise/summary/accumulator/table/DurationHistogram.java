@@ -0,0 +1,83 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import com.gradle.enterprise.summary.accumulator.Mergeable;
+
+import java.io.Serializable;
+
+/**
+ * Counts durations in buckets whose width grows with the duration, so that percentiles can be reported
+ * with a bounded relative error from a fixed number of counters, however many durations were added.
+ * <p>
+ * Durations below 16 ms each have their own bucket, every power of two above is split into 8 buckets,
+ * which makes a reported percentile at most 6.25% off. Durations of more than about two years share the last bucket.
+ * The maximum is kept exactly.
+ */
+public final class DurationHistogram implements Mergeable<DurationHistogram>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 35;
+    private static final long MAX_TRACKED_DURATION = (1L << (MAX_EXPONENT + 1)) - 1;
+    private static final int BUCKETS = SUB_BUCKETS + (MAX_EXPONENT - SUB_BUCKET_BITS + 1) * SUB_BUCKETS;
+
+    private final int[] counts = new int[BUCKETS];
+    private long totalCount;
+    private long max;
+
+    public void add(long duration) {
+        long clamped = Math.max(0, Math.min(duration, MAX_TRACKED_DURATION));
+        counts[bucketOf(clamped)]++;
+        totalCount++;
+        max = Math.max(max, clamped);
+    }
+
+    @Override
+    public void merge(DurationHistogram other) {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] += other.counts[bucket];
+        }
+        totalCount += other.totalCount;
+        max = Math.max(max, other.max);
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @param quantile between 0 and 1, e.g. 0.9 for the 90th percentile
+     * @return the duration that the given share of the durations do not exceed, or 0 if there are none
+     */
+    public long getPercentile(double quantile) {
+        long rank = Math.max(1, (long) Math.ceil(quantile * totalCount));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.min(max, midpointOf(bucket));
+            }
+        }
+        return max;
+    }
+
+    private static int bucketOf(long duration) {
+        if (duration < SUB_BUCKETS) {
+            return (int) duration;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(duration);
+        int subBucket = (int) (duration >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exponent - SUB_BUCKET_BITS) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long midpointOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exponent = (bucket - SUB_BUCKETS) / SUB_BUCKETS + SUB_BUCKET_BITS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        long lowest = (SUB_BUCKETS + subBucket) * width;
+        return lowest + (width - 1) / 2;
+    }
+}
@@ -0,0 +1,33 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import java.util.Arrays;
+
+public final class LongColumn extends Column {
+    private static final long serialVersionUID = 1L;
+
+    private long[][] chunks = new long[0][];
+    private int allocatedChunks;
+
+    public long get(int row) {
+        return chunks[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public void set(int row, long value) {
+        chunks[row >>> CHUNK_BITS][row & CHUNK_MASK] = value;
+    }
+
+    public void add(int row, long delta) {
+        chunks[row >>> CHUNK_BITS][row & CHUNK_MASK] += delta;
+    }
+
+    @Override
+    public void grow(int rows) {
+        int neededChunks = chunksFor(rows);
+        while (allocatedChunks < neededChunks) {
+            if (allocatedChunks == chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(1, chunks.length * 2));
+            }
+            chunks[allocatedChunks++] = new long[CHUNK_SIZE];
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import java.util.Arrays;
+
+/**
+ * A column for the few values that do not fit in primitives, which are {@code null} for most rows.
+ */
+public final class ObjectColumn<T> extends Column {
+    private static final long serialVersionUID = 1L;
+
+    private Object[][] chunks = new Object[0][];
+    private int allocatedChunks;
+
+    @SuppressWarnings("unchecked")
+    public T get(int row) {
+        return (T) chunks[row >>> CHUNK_BITS][row & CHUNK_MASK];
+    }
+
+    public void set(int row, T value) {
+        chunks[row >>> CHUNK_BITS][row & CHUNK_MASK] = value;
+    }
+
+    @Override
+    public void grow(int rows) {
+        int neededChunks = chunksFor(rows);
+        while (allocatedChunks < neededChunks) {
+            if (allocatedChunks == chunks.length) {
+                chunks = Arrays.copyOf(chunks, Math.max(1, chunks.length * 2));
+            }
+            chunks[allocatedChunks++] = new Object[CHUNK_SIZE];
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Finds a row by its parent row and the id of its name, in an open-addressing hash table of primitives.
+ */
+final class RowIndex implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private static final long NO_KEY = -1L;
+
+    private long[] keys = newKeys(16);
+    private int[] rows = new int[16];
+    private int size;
+
+    /**
+     * @return the row, or {@link WorkUnitTable#NO_ROW} if there is none
+     */
+    int get(int parentRow, int nameId) {
+        long key = key(parentRow, nameId);
+        for (int slot = slot(key, keys.length); keys[slot] != NO_KEY; slot = (slot + 1) & (keys.length - 1)) {
+            if (keys[slot] == key) {
+                return rows[slot];
+            }
+        }
+        return WorkUnitTable.NO_ROW;
+    }
+
+    void put(int parentRow, int nameId, int row) {
+        if (2 * (size + 1) > keys.length) {
+            resize(keys.length * 2);
+        }
+        insert(key(parentRow, nameId), row);
+        size++;
+    }
+
+    void remove(int parentRow, int nameId) {
+        long key = key(parentRow, nameId);
+        int mask = keys.length - 1;
+        int slot = slot(key, keys.length);
+        while (keys[slot] != key) {
+            if (keys[slot] == NO_KEY) {
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // Shift back the entries after it that would no longer be found past the hole
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != NO_KEY; next = (next + 1) & mask) {
+            int home = slot(keys[next], keys.length);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                rows[hole] = rows[next];
+                hole = next;
+            }
+        }
+        keys[hole] = NO_KEY;
+        size--;
+    }
+
+    private void insert(long key, int row) {
+        int slot = slot(key, keys.length);
+        while (keys[slot] != NO_KEY) {
+            slot = (slot + 1) & (keys.length - 1);
+        }
+        keys[slot] = key;
+        rows[slot] = row;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldRows = rows;
+        keys = newKeys(capacity);
+        rows = new int[capacity];
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != NO_KEY) {
+                insert(oldKeys[slot], oldRows[slot]);
+            }
+        }
+    }
+
+    private static long key(int parentRow, int nameId) {
+        return ((long) parentRow << 32) | (nameId & 0xFFFFFFFFL);
+    }
+
+    private static int slot(long key, int capacity) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & (capacity - 1);
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, NO_KEY);
+        return keys;
+    }
+}
@@ -0,0 +1,86 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns strings to dense ids, so that a string repeated across many rows is stored once.
+ * <p>
+ * The ids are counted references: a string is kept while it is {@link #acquire(String) acquired} more often than
+ * it was {@link #release(int) released}, after which its id is reused for another string.
+ */
+public final class StringDictionary implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int NO_ID = -1;
+
+    // Released values are null until their id is reused
+    private final List<String> values = new ArrayList<>();
+    private int[] references = new int[0];
+    private transient Map<String, Integer> ids = new HashMap<>();
+    private transient Deque<Integer> releasedIds = new ArrayDeque<>();
+
+    /**
+     * @return the id of the value, without acquiring it, or {@link #NO_ID} if it is not in the dictionary
+     */
+    public int find(String value) {
+        Integer id = ids.get(value);
+        return id == null ? NO_ID : id;
+    }
+
+    /**
+     * @return the id of the value, which is kept until it is released as often as it was acquired
+     */
+    public int acquire(String value) {
+        Integer id = ids.get(value);
+        if (id == null) {
+            id = releasedIds.isEmpty() ? values.size() : releasedIds.pop();
+            if (id == values.size()) {
+                values.add(value);
+                if (references.length <= id) {
+                    references = Arrays.copyOf(references, Math.max(16, references.length * 2));
+                }
+            } else {
+                values.set(id, value);
+            }
+            ids.put(value, id);
+        }
+        references[id]++;
+        return id;
+    }
+
+    public void release(int id) {
+        if (--references[id] > 0) {
+            return;
+        }
+        ids.remove(values.get(id));
+        values.set(id, null);
+        releasedIds.push(id);
+    }
+
+    public String get(int id) {
+        return values.get(id);
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        // The ids are implied by the order of the values, so only the values are stored
+        ids = new HashMap<>();
+        releasedIds = new ArrayDeque<>();
+        for (int id = 0; id < values.size(); id++) {
+            if (values.get(id) == null) {
+                releasedIds.push(id);
+            } else {
+                ids.put(values.get(id), id);
+            }
+        }
+    }
+}
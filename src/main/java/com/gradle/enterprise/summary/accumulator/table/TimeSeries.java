@@ -0,0 +1,95 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import com.gradle.enterprise.summary.accumulator.Mergeable;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Counts builds or executions, their time and their avoidable time in buckets of a fixed length of time,
+ * so that trends within the time window can be reported.
+ * <p>
+ * The buckets are kept in one array, three values per bucket, from the first to the last bucket anything was added to.
+ * Buckets are aligned to the epoch in UTC, so series with the same bucket length can be merged bucket by bucket.
+ */
+public final class TimeSeries implements Mergeable<TimeSeries>, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private static final int VALUES_PER_BUCKET = 3;
+    private static final int COUNT = 0;
+    private static final int TIME = 1;
+    private static final int AVOIDABLE_TIME = 2;
+
+    private final long bucketMillis;
+    private long firstBucket;
+    private long[] values = new long[0];
+
+    public TimeSeries(long bucketMillis) {
+        this.bucketMillis = bucketMillis;
+    }
+
+    /**
+     * @param timestamp the time of the build, in milliseconds since the epoch
+     */
+    public void add(long timestamp, long count, long time, long avoidableTime) {
+        int offset = offsetOf(Math.floorDiv(timestamp, bucketMillis));
+        values[offset + COUNT] += count;
+        values[offset + TIME] += time;
+        values[offset + AVOIDABLE_TIME] += avoidableTime;
+    }
+
+    @Override
+    public void merge(TimeSeries other) {
+        if (other.bucketMillis != bucketMillis) {
+            throw new IllegalArgumentException("Cannot merge buckets of " + other.bucketMillis + " ms into buckets of " + bucketMillis + " ms");
+        }
+        for (int bucket = 0; bucket < other.getBuckets(); bucket++) {
+            int offset = offsetOf(other.firstBucket + bucket);
+            for (int value = 0; value < VALUES_PER_BUCKET; value++) {
+                values[offset + value] += other.values[bucket * VALUES_PER_BUCKET + value];
+            }
+        }
+    }
+
+    public int getBuckets() {
+        return values.length / VALUES_PER_BUCKET;
+    }
+
+    /**
+     * @return the start of the bucket, in milliseconds since the epoch
+     */
+    public long getBucketStart(int bucket) {
+        return (firstBucket + bucket) * bucketMillis;
+    }
+
+    public long getCount(int bucket) {
+        return values[bucket * VALUES_PER_BUCKET + COUNT];
+    }
+
+    public long getTime(int bucket) {
+        return values[bucket * VALUES_PER_BUCKET + TIME];
+    }
+
+    public long getAvoidableTime(int bucket) {
+        return values[bucket * VALUES_PER_BUCKET + AVOIDABLE_TIME];
+    }
+
+    /**
+     * @return the index of the first value of the bucket, after extending the array to include it
+     */
+    private int offsetOf(long bucket) {
+        if (values.length == 0) {
+            firstBucket = bucket;
+            values = new long[VALUES_PER_BUCKET];
+        } else if (bucket < firstBucket) {
+            int added = Math.toIntExact(firstBucket - bucket);
+            long[] extended = new long[values.length + added * VALUES_PER_BUCKET];
+            System.arraycopy(values, 0, extended, added * VALUES_PER_BUCKET, values.length);
+            values = extended;
+            firstBucket = bucket;
+        } else if (bucket >= firstBucket + getBuckets()) {
+            values = Arrays.copyOf(values, Math.toIntExact((bucket - firstBucket + 1) * VALUES_PER_BUCKET));
+        }
+        return Math.toIntExact(bucket - firstBucket) * VALUES_PER_BUCKET;
+    }
+}
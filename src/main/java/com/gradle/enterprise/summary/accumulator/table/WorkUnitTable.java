@@ -0,0 +1,356 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The counters of the work units of all projects of a summary, one row per work unit, stored in primitive columns
+ * instead of one object with its own maps per work unit.
+ * <p>
+ * Rows form a tree: each project has a root row, whose children are the work unit types, whose children are in turn
+ * the work unit names. Children are kept in the order they were first added and are looked up by the id of their name,
+ * which is interned once for the whole table while rows have it. The types also keep a trend of their executions over time.
+ * <p>
+ * The number of names tracked per type can be bounded, in which case the names with the most avoidable time are kept
+ * with the Space-Saving algorithm: a name that is not tracked takes over the row of the tracked name with the least
+ * avoidable time, and inherits that time as its error. Every name whose avoidable time is more than the avoidable time
+ * of its type divided by the bound is then guaranteed to be tracked, and the avoidable time of a tracked name
+ * is overestimated by at most its error.
+ * <p>
+ * Not thread-safe, like the summaries that own it.
+ */
+public class WorkUnitTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    public static final int NO_ROW = -1;
+
+    private final List<Column> columns = new ArrayList<>();
+    private final StringDictionary dictionary = new StringDictionary();
+    private final RowIndex childIndex = new RowIndex();
+    private final int maxTrackedNames;
+    private final long trendBucketMillis;
+    private int rows;
+
+    private final IntColumn nameIds = column(new IntColumn());
+    private final IntColumn parents = column(new IntColumn());
+    private final IntColumn firstChildren = column(new IntColumn());
+    private final IntColumn lastChildren = column(new IntColumn());
+    private final IntColumn nextSiblings = column(new IntColumn());
+    private final IntColumn childCounts = column(new IntColumn());
+
+    private final IntColumn executions = column(new IntColumn());
+    private final LongColumn executionTimes = column(new LongColumn());
+    private final LongColumn avoidanceTimes = column(new LongColumn());
+    private final LongColumn avoidableTimes = column(new LongColumn());
+    private final LongColumn nonAvoidableTimes = column(new LongColumn());
+    private final LongColumn cacheMisses = column(new LongColumn());
+    // Allocated on the first execution, so the root rows of the projects have none
+    private final ObjectColumn<DurationHistogram> durations = column(new ObjectColumn<>());
+    // Only kept for the types, allocated on their first execution
+    private final ObjectColumn<TimeSeries> trends = column(new ObjectColumn<>());
+
+    // Only used when the names are bounded: the avoidable time inherited from replaced names,
+    // and a min-heap of the names of each type by avoidable time, to find the one to replace
+    private final LongColumn avoidableTimeErrors = column(new LongColumn());
+    private final ObjectColumn<int[]> childHeaps = column(new ObjectColumn<>());
+    private final IntColumn heapPositions = column(new IntColumn());
+
+    /**
+     * @param maxTrackedNames   the number of names to track per type, or {@code 0} to track all of them
+     * @param trendBucketMillis the length of the buckets of the trends of the types
+     */
+    public WorkUnitTable(int maxTrackedNames, long trendBucketMillis) {
+        this.maxTrackedNames = maxTrackedNames;
+        this.trendBucketMillis = trendBucketMillis;
+    }
+
+    /**
+     * Registers a column, so that it grows along with the table.
+     */
+    protected final <C extends Column> C column(C column) {
+        columns.add(column);
+        return column;
+    }
+
+    protected final StringDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return a new row without a name, to which the work units of a project are added as children
+     */
+    public int addRoot() {
+        return addRow(NO_ROW, NO_ROW);
+    }
+
+    /**
+     * @return the child of {@code parentRow} with the given name, added after the existing children if there is none,
+     * or taking over the row of the name with the least avoidable time if the names of {@code parentRow} are bounded
+     * and all tracked
+     */
+    public int child(int parentRow, String name) {
+        int nameId = dictionary.find(name);
+        int row = nameId == StringDictionary.NO_ID ? NO_ROW : childIndex.get(parentRow, nameId);
+        if (row != NO_ROW) {
+            return row;
+        }
+
+        // Only interned once a row has the name, so names that are not tracked are not kept either
+        nameId = dictionary.acquire(name);
+        boolean bounded = isBounded(parentRow);
+        if (bounded && childCounts.get(parentRow) >= maxTrackedNames) {
+            return replaceLightestChild(parentRow, nameId);
+        }
+
+        row = addRow(parentRow, nameId);
+        childIndex.put(parentRow, nameId, row);
+        if (firstChildren.get(parentRow) == NO_ROW) {
+            firstChildren.set(parentRow, row);
+        } else {
+            nextSiblings.set(lastChildren.get(parentRow), row);
+        }
+        lastChildren.set(parentRow, row);
+        childCounts.add(parentRow, 1);
+        if (bounded) {
+            pushOnHeap(parentRow, row);
+        }
+        return row;
+    }
+
+    private int addRow(int parentRow, int nameId) {
+        int row = rows++;
+        for (Column column : columns) {
+            column.grow(rows);
+        }
+        nameIds.set(row, nameId);
+        parents.set(row, parentRow);
+        firstChildren.set(row, NO_ROW);
+        lastChildren.set(row, NO_ROW);
+        nextSiblings.set(row, NO_ROW);
+        return row;
+    }
+
+    /**
+     * Only the names are bounded, which are the children of the types, which are the children of the root rows.
+     */
+    private boolean isBounded(int parentRow) {
+        return maxTrackedNames > 0 && parents.get(parentRow) != NO_ROW;
+    }
+
+    private int replaceLightestChild(int parentRow, int nameId) {
+        int row = childHeaps.get(parentRow)[0];
+        long lightestAvoidableTime = avoidableTimes.get(row);
+
+        childIndex.remove(parentRow, nameIds.get(row));
+        dictionary.release(nameIds.get(row));
+        clearRow(row);
+        nameIds.set(row, nameId);
+        childIndex.put(parentRow, nameId, row);
+
+        // The row keeps its avoidable time, so it stays where it is in the heap
+        avoidableTimes.set(row, lightestAvoidableTime);
+        avoidableTimeErrors.set(row, lightestAvoidableTime);
+        return row;
+    }
+
+    /**
+     * Resets the counters of a row that is taken over by another name.
+     */
+    protected void clearRow(int row) {
+        executions.set(row, 0);
+        executionTimes.set(row, 0);
+        avoidanceTimes.set(row, 0);
+        avoidableTimes.set(row, 0);
+        nonAvoidableTimes.set(row, 0);
+        cacheMisses.set(row, 0);
+        durations.set(row, null);
+        avoidableTimeErrors.set(row, 0);
+    }
+
+    public int firstChild(int row) {
+        return firstChildren.get(row);
+    }
+
+    public int nextSibling(int row) {
+        return nextSiblings.get(row);
+    }
+
+    public String getName(int row) {
+        return dictionary.get(nameIds.get(row));
+    }
+
+    /**
+     * @param avoidable    whether the work unit could have been avoided, in which case it counts as a cache miss
+     * @param nonAvoidable whether the work unit could not have been avoided
+     */
+    protected void addExecution(int row, long duration, long avoidanceSavings, boolean avoidable, boolean nonAvoidable) {
+        executions.add(row, 1);
+        executionTimes.add(row, duration);
+        avoidanceTimes.add(row, avoidanceSavings);
+        if (avoidable) {
+            // Note that this is not truly all 'avoidable time', as if it was coming from cache, we would get some overhead to be removed from the avoidable time
+            avoidableTimes.add(row, duration);
+            cacheMisses.add(row, 1);
+            avoidableTimeIncreased(row);
+        }
+        if (nonAvoidable) {
+            nonAvoidableTimes.add(row, duration);
+        }
+        durationsOf(row).add(duration);
+    }
+
+    /**
+     * Adds an execution of a build at the given time to the trend of a type.
+     */
+    protected void addToTrend(int row, long timestamp, long duration, boolean avoidable) {
+        trendOf(row).add(timestamp, 1, duration, avoidable ? duration : 0);
+    }
+
+    private TimeSeries trendOf(int row) {
+        TimeSeries trend = trends.get(row);
+        if (trend == null) {
+            trend = new TimeSeries(trendBucketMillis);
+            trends.set(row, trend);
+        }
+        return trend;
+    }
+
+    private DurationHistogram durationsOf(int row) {
+        DurationHistogram histogram = durations.get(row);
+        if (histogram == null) {
+            histogram = new DurationHistogram();
+            durations.set(row, histogram);
+        }
+        return histogram;
+    }
+
+    /**
+     * Adds the children of {@code otherRow} in {@code other}, and their children, to the children of {@code row},
+     * as if the same work units had been added to it.
+     */
+    public void mergeChildren(int row, WorkUnitTable other, int otherRow) {
+        for (int otherChild = other.firstChild(otherRow); otherChild != NO_ROW; otherChild = other.nextSibling(otherChild)) {
+            int child = child(row, other.getName(otherChild));
+            mergeRow(child, other, otherChild);
+            mergeChildren(child, other, otherChild);
+        }
+    }
+
+    /**
+     * Adds the counters of {@code otherRow} in {@code other} to those of {@code row}, without their children.
+     */
+    public void mergeRow(int row, WorkUnitTable other, int otherRow) {
+        executions.add(row, other.executions.get(otherRow));
+        executionTimes.add(row, other.executionTimes.get(otherRow));
+        avoidanceTimes.add(row, other.avoidanceTimes.get(otherRow));
+        avoidableTimes.add(row, other.avoidableTimes.get(otherRow));
+        nonAvoidableTimes.add(row, other.nonAvoidableTimes.get(otherRow));
+        cacheMisses.add(row, other.cacheMisses.get(otherRow));
+        if (other.durations.get(otherRow) != null) {
+            durationsOf(row).merge(other.durations.get(otherRow));
+        }
+        if (other.trends.get(otherRow) != null) {
+            trendOf(row).merge(other.trends.get(otherRow));
+        }
+        avoidableTimeErrors.add(row, other.avoidableTimeErrors.get(otherRow));
+        avoidableTimeIncreased(row);
+    }
+
+    private void avoidableTimeIncreased(int row) {
+        int parentRow = parents.get(row);
+        if (parentRow != NO_ROW && isBounded(parentRow)) {
+            siftDown(parentRow, heapPositions.get(row));
+        }
+    }
+
+    private void pushOnHeap(int parentRow, int row) {
+        int[] heap = childHeaps.get(parentRow);
+        int size = childCounts.get(parentRow);
+        if (heap == null || heap.length < size) {
+            heap = Arrays.copyOf(heap == null ? new int[0] : heap, Math.min(maxTrackedNames, Math.max(8, size * 2)));
+            childHeaps.set(parentRow, heap);
+        }
+
+        int position = size - 1;
+        while (position > 0) {
+            int parentPosition = (position - 1) / 2;
+            if (avoidableTimes.get(heap[parentPosition]) <= avoidableTimes.get(row)) {
+                break;
+            }
+            placeOnHeap(heap, position, heap[parentPosition]);
+            position = parentPosition;
+        }
+        placeOnHeap(heap, position, row);
+    }
+
+    private void siftDown(int parentRow, int position) {
+        int[] heap = childHeaps.get(parentRow);
+        int size = childCounts.get(parentRow);
+        int row = heap[position];
+        long avoidableTime = avoidableTimes.get(row);
+        while (true) {
+            int smallest = 2 * position + 1;
+            if (smallest >= size) {
+                break;
+            }
+            if (smallest + 1 < size && avoidableTimes.get(heap[smallest + 1]) < avoidableTimes.get(heap[smallest])) {
+                smallest++;
+            }
+            if (avoidableTime <= avoidableTimes.get(heap[smallest])) {
+                break;
+            }
+            placeOnHeap(heap, position, heap[smallest]);
+            position = smallest;
+        }
+        placeOnHeap(heap, position, row);
+    }
+
+    private void placeOnHeap(int[] heap, int position, int row) {
+        heap[position] = row;
+        heapPositions.set(row, position);
+    }
+
+    public int getExecutions(int row) {
+        return executions.get(row);
+    }
+
+    public long getExecutionTime(int row) {
+        return executionTimes.get(row);
+    }
+
+    public long getAvoidanceTime(int row) {
+        return avoidanceTimes.get(row);
+    }
+
+    public long getAvoidableTime(int row) {
+        return avoidableTimes.get(row);
+    }
+
+    /**
+     * @return by how much the avoidable time may be overestimated, which is {@code 0} unless the names are bounded
+     */
+    public long getAvoidableTimeError(int row) {
+        return avoidableTimeErrors.get(row);
+    }
+
+    public long getNonAvoidableTime(int row) {
+        return nonAvoidableTimes.get(row);
+    }
+
+    public long getCacheMisses(int row) {
+        return cacheMisses.get(row);
+    }
+
+    public DurationHistogram getDurations(int row) {
+        return durationsOf(row);
+    }
+
+    /**
+     * @return the executions of a type per bucket of time
+     */
+    public TimeSeries getTrend(int row) {
+        return trendOf(row);
+    }
+}
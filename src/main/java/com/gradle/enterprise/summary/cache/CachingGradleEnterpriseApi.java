@@ -0,0 +1,43 @@
+package com.gradle.enterprise.summary.cache;
+
+import com.gradle.enterprise.api.GradleEnterpriseApi;
+import com.gradle.enterprise.api.client.ApiClient;
+import com.gradle.enterprise.api.client.ApiException;
+import com.gradle.enterprise.api.model.BuildQuery;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+
+/**
+ * Serves the per-build endpoints from a {@link ResponseCache}, only calling the server on a cache miss.
+ * Listing builds is never cached.
+ */
+public class CachingGradleEnterpriseApi extends GradleEnterpriseApi {
+    private final ResponseCache cache;
+
+    public CachingGradleEnterpriseApi(ApiClient apiClient, ResponseCache cache) {
+        super(apiClient);
+        this.cache = cache;
+    }
+
+    @Override
+    public GradleAttributes getGradleAttributes(String id, BuildQuery buildQuery) throws ApiException {
+        return cache.get(id, "gradle-attributes", GradleAttributes.class, () -> super.getGradleAttributes(id, buildQuery));
+    }
+
+    @Override
+    public GradleBuildCachePerformance getGradleBuildCachePerformance(String id, BuildQuery buildQuery) throws ApiException {
+        return cache.get(id, "gradle-build-cache-performance", GradleBuildCachePerformance.class, () -> super.getGradleBuildCachePerformance(id, buildQuery));
+    }
+
+    @Override
+    public MavenAttributes getMavenAttributes(String id, BuildQuery buildQuery) throws ApiException {
+        return cache.get(id, "maven-attributes", MavenAttributes.class, () -> super.getMavenAttributes(id, buildQuery));
+    }
+
+    @Override
+    public MavenBuildCachePerformance getMavenBuildCachePerformance(String id, BuildQuery buildQuery) throws ApiException {
+        return cache.get(id, "maven-build-cache-performance", MavenBuildCachePerformance.class, () -> super.getMavenBuildCachePerformance(id, buildQuery));
+    }
+}
@@ -0,0 +1,218 @@
+package com.gradle.enterprise.summary.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gradle.enterprise.api.client.ApiException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Stores API responses of single builds on disk as gzipped JSON, one file per server, build and endpoint.
+ * Build data does not change once a build is available, so entries never need to be revalidated,
+ * they are only evicted when they get too old or the cache grows too large.
+ * <p>
+ * The entries of each server are kept in a directory named after a hash of its address, as build ids are only unique
+ * per server. The size of the cache covers the entries of all servers.
+ */
+public final class ResponseCache {
+    private static final Logger logger = LoggerFactory.getLogger(ResponseCache.class);
+    private static final String FILE_EXTENSION = ".json.gz";
+    private static final int SERVER_HASH_BYTES = 8;
+
+    private final Path directory;
+    private final Path serverDirectory;
+    private final ObjectMapper mapper;
+    private final long maxSizeBytes;
+    private final Duration maxAge;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    public ResponseCache(Path directory, String serverUrl, ObjectMapper mapper, long maxSizeBytes, Duration maxAge) {
+        this.directory = directory;
+        this.serverDirectory = directory.resolve(hash(serverUrl));
+        this.mapper = mapper;
+        this.maxSizeBytes = maxSizeBytes;
+        this.maxAge = maxAge;
+    }
+
+    public <T> T get(String buildId, String endpoint, Class<T> type, Loader<T> loader) throws ApiException {
+        Path file = fileFor(buildId, endpoint);
+
+        T cached = read(file, type);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return cached;
+        }
+
+        misses.incrementAndGet();
+        T value = loader.load();
+        write(file, value);
+        return value;
+    }
+
+    /**
+     * Deletes the entries that are older than the maximum age and then, least recently used first,
+     * as many entries as needed to bring the cache under its maximum size.
+     */
+    public void evict() {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+
+        List<Entry> entries = new ArrayList<>();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(FILE_EXTENSION)).forEach(file -> {
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime().toInstant()));
+                } catch (IOException e) {
+                    logger.error("Error reading cache entry {}", file, e);
+                }
+            });
+        } catch (IOException e) {
+            logger.error("Error listing the response cache in {}", directory, e);
+            return;
+        }
+
+        Instant oldestAllowed = Instant.now().minus(maxAge);
+        long totalSize = entries.stream().mapToLong(Entry::getSize).sum();
+        int evicted = 0;
+
+        entries.sort(Comparator.comparing(Entry::getLastUsed));
+        for (Entry entry : entries) {
+            if (!entry.getLastUsed().isBefore(oldestAllowed) && totalSize <= maxSizeBytes) {
+                break;
+            }
+            try {
+                Files.deleteIfExists(entry.getFile());
+                totalSize -= entry.getSize();
+                evicted++;
+            } catch (IOException e) {
+                logger.error("Error evicting cache entry {}", entry.getFile(), e);
+            }
+        }
+
+        System.out.printf("Cache | %d entries | %d MB | %d evicted\n", entries.size() - evicted, totalSize / (1024 * 1024), evicted);
+    }
+
+    public void printStatistics() {
+        long cacheHits = hits.get();
+        long requests = cacheHits + misses.get();
+        System.out.printf("Cache | %d hits | %d misses | %d%% hit rate | %d MB written\n",
+            cacheHits,
+            misses.get(),
+            requests == 0 ? 0 : cacheHits * 100 / requests,
+            bytesWritten.get() / (1024 * 1024)
+        );
+    }
+
+    private Path fileFor(String buildId, String endpoint) {
+        String shard = buildId.length() > 2 ? buildId.substring(0, 2) : buildId;
+        return serverDirectory.resolve(endpoint).resolve(shard).resolve(buildId + FILE_EXTENSION);
+    }
+
+    private <T> T read(Path file, Class<T> type) {
+        try (InputStream in = new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            T value = mapper.readValue(in, type);
+            // Keep track of the last use, so that eviction by size drops the least recently used entries
+            Files.setLastModifiedTime(file, FileTime.from(Instant.now()));
+            return value;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.error("Error reading cache entry {}, discarding it", file, e);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException ignored) {
+            }
+            return null;
+        }
+    }
+
+    private void write(Path file, Object value) {
+        Path tempFile = null;
+        try {
+            Files.createDirectories(file.getParent());
+            tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try (OutputStream out = new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                mapper.writeValue(out, value);
+            }
+            bytesWritten.addAndGet(Files.size(tempFile));
+            // Readers never see a partially written entry
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.error("Error writing cache entry {}", file, e);
+            if (tempFile != null) {
+                try {
+                    Files.deleteIfExists(tempFile);
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static String hash(String serverUrl) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(serverUrl.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, SERVER_HASH_BYTES);
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform supports SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface Loader<T> {
+        T load() throws ApiException;
+    }
+
+    private static final class Entry {
+        private final Path file;
+        private final long size;
+        private final Instant lastUsed;
+
+        private Entry(Path file, long size, Instant lastUsed) {
+            this.file = file;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+
+        Path getFile() {
+            return file;
+        }
+
+        long getSize() {
+            return size;
+        }
+
+        Instant getLastUsed() {
+            return lastUsed;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.gradle.enterprise.summary.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformanceGoalExecutionEntry;
+import com.gradle.enterprise.summary.accumulator.SummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummarySink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Exports every processed build as one line of JSON to a gzipped file, in addition to adding it to the summaries,
+ * so that other aggregations can be computed from the export without fetching the builds again.
+ * <p>
+ * Adding a build formats it into a compact record on the calling thread, so that the models it came from are not
+ * kept, and hands the record to a background thread, which compresses and writes the records in batches.
+ * The processors only wait for the export when {@link #MAX_PENDING_RECORDS} records are waiting to be written.
+ * If writing fails, the export stops and the failure is reported on {@link #close()}.
+ * Builds added after the export was closed, by processors still running when the run is interrupted, are not exported.
+ */
+public final class BuildExport implements SummarySink, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(BuildExport.class);
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_BATCH_SIZE = 1024;
+    private static final int MAX_PENDING_RECORDS = 4 * MAX_BATCH_SIZE;
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+    private static final byte[] END_OF_EXPORT = new byte[0];
+
+    private final Path file;
+    private final SummarySink delegate;
+    private final OutputStream out;
+    private final BlockingQueue<byte[]> pending = new ArrayBlockingQueue<>(MAX_PENDING_RECORDS);
+    private final AtomicLong exported = new AtomicLong();
+    private final Thread writerThread;
+    private volatile Exception failure;
+    private volatile boolean closed;
+
+    public BuildExport(Path file, SummarySink delegate) throws IOException {
+        this.file = file;
+        this.delegate = delegate;
+        if (file.toAbsolutePath().getParent() != null) {
+            file.toAbsolutePath().getParent().toFile().mkdirs();
+        }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.out = new GZIPOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE), BUFFER_SIZE);
+        this.writerThread = new Thread(this::writeRecords, "build-export-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    @Override
+    public void addGradleBuild(Build build, GradleAttributes attributes, GradleBuildCachePerformance model) {
+        delegate.addGradleBuild(build, attributes, model);
+        export(generator -> {
+            writeBuild(generator, build, attributes.getRootProjectName(), attributes.getBuildDuration(), attributes.getHasFailed());
+            generator.writeArrayFieldStart("tasks");
+            if (model.getTaskExecution() != null) {
+                for (GradleBuildCachePerformanceTaskExecutionEntry task : model.getTaskExecution()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("path", task.getTaskPath());
+                    generator.writeStringField("type", task.getTaskType());
+                    generator.writeStringField("outcome", task.getAvoidanceOutcome() == null ? null : task.getAvoidanceOutcome().getValue());
+                    writeNumberField(generator, "duration", task.getDuration());
+                    generator.writeEndObject();
+                }
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    @Override
+    public void addMavenBuild(Build build, MavenAttributes attributes, MavenBuildCachePerformance model) {
+        delegate.addMavenBuild(build, attributes, model);
+        export(generator -> {
+            writeBuild(generator, build, attributes.getTopLevelProjectName(), attributes.getBuildDuration(), attributes.getHasFailed());
+            generator.writeArrayFieldStart("goals");
+            if (model.getGoalExecution() != null) {
+                for (MavenBuildCachePerformanceGoalExecutionEntry goal : model.getGoalExecution()) {
+                    generator.writeStartObject();
+                    generator.writeStringField("name", goal.getGoalName());
+                    generator.writeStringField("type", goal.getMojoType());
+                    generator.writeStringField("outcome", goal.getAvoidanceOutcome() == null ? null : goal.getAvoidanceOutcome().getValue());
+                    writeNumberField(generator, "duration", goal.getDuration());
+                    generator.writeEndObject();
+                }
+            }
+            generator.writeEndArray();
+        });
+    }
+
+    @Override
+    public SummaryAccumulators getSummaries() {
+        return delegate.getSummaries();
+    }
+
+    public void printStatistics() {
+        System.out.printf("Build export | %d builds exported to %s\n", exported.get(), file);
+    }
+
+    /**
+     * Writes the builds added so far and completes the file.
+     * Called at the end of the run or by the shutdown hook, whichever comes first.
+     */
+    @Override
+    public synchronized void close() throws IOException, InterruptedException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        // The writer no longer takes records once it failed
+        boolean queued = false;
+        while (!queued && writerThread.isAlive()) {
+            queued = pending.offer(END_OF_EXPORT, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        writerThread.join();
+        out.close();
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure != null) {
+            throw new IOException("Could not write the build export to " + file, failure);
+        }
+    }
+
+    /**
+     * Formats the record and queues it for the writer, waiting while too many records are queued.
+     */
+    private void export(Record record) {
+        if (failure != null || closed) {
+            return;
+        }
+
+        byte[] line;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream(256);
+            try (JsonGenerator generator = JSON_FACTORY.createGenerator(buffer)) {
+                generator.writeStartObject();
+                record.writeTo(generator);
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+            line = buffer.toByteArray();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+            return;
+        }
+
+        try {
+            while (!pending.offer(line, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                if (failure != null || !writerThread.isAlive()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeRecords() {
+        List<byte[]> batch = new ArrayList<>();
+        boolean closed = false;
+
+        try {
+            while (!closed) {
+                batch.add(pending.take());
+                pending.drainTo(batch, MAX_BATCH_SIZE - 1);
+                closed = batch.remove(END_OF_EXPORT);
+
+                for (byte[] line : batch) {
+                    out.write(line);
+                }
+                exported.addAndGet(batch.size());
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Exception e) {
+        logger.error("Could not write the build export to {}.", file, e);
+        failure = e;
+        // Unblocks the processors waiting for room, the records are no longer written
+        pending.clear();
+    }
+
+    private static void writeBuild(JsonGenerator generator, Build build, String project, Long duration, Boolean failed) throws IOException {
+        generator.writeStringField("id", build.getId());
+        writeNumberField(generator, "availableAt", build.getAvailableAt());
+        generator.writeStringField("tool", build.getBuildToolType());
+        generator.writeStringField("project", project);
+        writeNumberField(generator, "duration", duration);
+        if (failed != null) {
+            generator.writeBooleanField("failed", failed);
+        }
+    }
+
+    private static void writeNumberField(JsonGenerator generator, String fieldName, Long value) throws IOException {
+        if (value == null) {
+            generator.writeNullField(fieldName);
+        } else {
+            generator.writeNumberField(fieldName, value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Record {
+        void writeTo(JsonGenerator generator) throws IOException;
+    }
+}
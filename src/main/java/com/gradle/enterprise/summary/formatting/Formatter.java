@@ -1,23 +1,30 @@
 package com.gradle.enterprise.summary.formatting;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.gradle.enterprise.summary.StreamTransform;
+import com.gradle.enterprise.summary.accumulator.table.DurationHistogram;
+import com.gradle.enterprise.summary.accumulator.table.TimeSeries;
 import com.gradle.enterprise.summary.metrics.DurationFormatter;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 import java.util.stream.Stream;
 
 public interface Formatter<T> {
-    Logger logger = LoggerFactory.getLogger(Formatter.class);
+    void format(T model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms) throws IOException;
 
-    void format(T model, boolean shouldFormatDuration, List<StreamTransform<?>> transforms);
-
-    default void formatSafe(T model, boolean shouldFormatDate, List<StreamTransform<?>> transforms) {
+    /**
+     * Formats the model, rethrowing any error so that the whole output is discarded: the model may already have
+     * written part of its fields, and the output cannot be completed after them without mis-nesting the ones that follow.
+     */
+    default void formatUnchecked(T model, boolean shouldFormatDate, List<StreamTransform<?>> transforms) {
         try {
             format(model, shouldFormatDate, transforms);
-        } catch (Exception e) {
-            logger.error("Error formatting model {}", model, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -34,6 +41,45 @@ public interface Formatter<T> {
         return newStream;
     }
 
+    /**
+     * Writes the median, the 90th and 99th percentile and the maximum of the durations as an object field.
+     */
+    default void formatPercentiles(JsonGenerator generator, String fieldName, DurationHistogram durations, boolean shouldFormatDate) throws IOException {
+        generator.writeObjectFieldStart(fieldName);
+        generator.writeStringField("p50", formatMillis(durations.getPercentile(0.5), shouldFormatDate));
+        generator.writeStringField("p90", formatMillis(durations.getPercentile(0.9), shouldFormatDate));
+        generator.writeStringField("p99", formatMillis(durations.getPercentile(0.99), shouldFormatDate));
+        generator.writeStringField("max", formatMillis(durations.getMax(), shouldFormatDate));
+        generator.writeEndObject();
+    }
+
+    /**
+     * Writes the buckets of the trend, from the first to the last one with builds, as the {@code trend} array field.
+     *
+     * @param countName the name of what the trend counts, e.g. {@code builds}
+     * @param timeName  the name of the time of what it counts, e.g. {@code buildTime}
+     */
+    default void formatTrend(JsonGenerator generator, TimeSeries trend, String countName, String timeName, boolean shouldFormatDate) throws IOException {
+        generator.writeArrayFieldStart("trend");
+        for (int bucket = 0; bucket < trend.getBuckets(); bucket++) {
+            generator.writeStartObject();
+            generator.writeStringField("start", Instant.ofEpochMilli(trend.getBucketStart(bucket)).toString());
+            generator.writeNumberField(countName, trend.getCount(bucket));
+            generator.writeStringField(timeName, formatMillis(trend.getTime(bucket), shouldFormatDate));
+            generator.writeStringField("avoidableTime", formatMillis(trend.getAvoidableTime(bucket), shouldFormatDate));
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    default void formatStrings(JsonGenerator generator, String fieldName, Collection<String> values) throws IOException {
+        generator.writeArrayFieldStart(fieldName);
+        for (String value : values) {
+            generator.writeString(value);
+        }
+        generator.writeEndArray();
+    }
+
     default String formatMillis(Long millis, boolean shouldFormatDate) {
         if (shouldFormatDate) {
             return DurationFormatter.formatMillis(millis);
@@ -0,0 +1,174 @@
+package com.gradle.enterprise.summary.http;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Limits the number of requests in flight to a limit that adapts to how the server copes (AIMD).
+ * <p>
+ * While the limit is used up and the latency stays close to the lowest latency seen recently, the limit grows by one
+ * per limit's worth of responses. When the server pushes back it is halved, when the latency rises to more than
+ * twice the baseline it is reduced by a tenth, in both cases at most once per round trip.
+ * The baseline is the lowest latency of the previous window of responses, so it follows the server over time.
+ * <p>
+ * The latency and its baseline are kept per endpoint, as the responses of some endpoints are much larger than those
+ * of others and would otherwise always look slow compared to a baseline set by the smaller ones.
+ */
+public final class AdaptiveConcurrencyLimiter {
+    private static final double BACKOFF_ON_PUSHBACK = 0.5;
+    private static final double BACKOFF_ON_LATENCY = 0.9;
+    private static final double LATENCY_TOLERANCE = 2.0;
+    private static final double LATENCY_SMOOTHING = 0.1;
+    private static final int BASELINE_WINDOW = 500;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final Deque<CompletableFuture<Void>> waiting = new ArrayDeque<>();
+    private final Map<String, Latency> latencies = new HashMap<>();
+
+    private double limit;
+    private int inFlight;
+    private long lastBackoffNanos;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * @return a future that completes once the request may be sent
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        synchronized (this) {
+            if (inFlight < (int) limit) {
+                inFlight++;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> permit = new CompletableFuture<>();
+            waiting.add(permit);
+            return permit;
+        }
+    }
+
+    public void acquire() throws InterruptedException {
+        CompletableFuture<Void> permit = acquireAsync();
+        try {
+            permit.get();
+        } catch (InterruptedException e) {
+            // The permit may have been granted in the meantime, in which case it is handed on
+            if (!permit.cancel(false)) {
+                release();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Releases the permit of a request that completed, adapting the limit to its outcome.
+     *
+     * @param endpoint the endpoint of the request, whose latency is compared to the baseline of that endpoint
+     */
+    public void release(String endpoint, long startNanos, boolean pushback, boolean failed) {
+        long now = System.nanoTime();
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            Latency latency = latencies.computeIfAbsent(endpoint, e -> new Latency());
+            if (pushback) {
+                backoff(BACKOFF_ON_PUSHBACK, now, latency.smoothedNanos);
+            } else if (!failed) {
+                onLatency(latency, now - startNanos, now);
+            }
+            inFlight--;
+            granted = grant();
+        }
+        complete(granted);
+    }
+
+    /**
+     * Releases a permit without adapting the limit, for requests that were never sent.
+     */
+    public void release() {
+        List<CompletableFuture<Void>> granted;
+        synchronized (this) {
+            inFlight--;
+            granted = grant();
+        }
+        complete(granted);
+    }
+
+    private void onLatency(Latency latency, long latencyNanos, long now) {
+        latency.add(latencyNanos);
+        if (latency.smoothedNanos > LATENCY_TOLERANCE * latency.baselineNanos) {
+            backoff(BACKOFF_ON_LATENCY, now, latency.smoothedNanos);
+        } else if (inFlight >= (int) limit) {
+            // Only grow while the limit is actually what holds back the requests
+            limit = Math.min(maxLimit, limit + 1 / limit);
+        }
+    }
+
+    private void backoff(double factor, long now, double roundTripNanos) {
+        if (now - lastBackoffNanos < roundTripNanos) {
+            return;
+        }
+        limit = Math.max(minLimit, limit * factor);
+        lastBackoffNanos = now;
+    }
+
+    private List<CompletableFuture<Void>> grant() {
+        List<CompletableFuture<Void>> granted = new ArrayList<>();
+        while (inFlight < (int) limit && !waiting.isEmpty()) {
+            CompletableFuture<Void> permit = waiting.poll();
+            if (!permit.isCancelled()) {
+                inFlight++;
+                granted.add(permit);
+            }
+        }
+        return granted;
+    }
+
+    // Outside of the lock, as completing runs the requests waiting for the permits
+    private void complete(List<CompletableFuture<Void>> granted) {
+        for (CompletableFuture<Void> permit : granted) {
+            if (!permit.complete(null)) {
+                release();
+            }
+        }
+    }
+
+    /**
+     * The latency of the responses of one endpoint, and its baseline.
+     */
+    private static final class Latency {
+        private long baselineNanos;
+        private long windowMinNanos = Long.MAX_VALUE;
+        private int windowSamples;
+        private double smoothedNanos;
+
+        private void add(long latencyNanos) {
+            if (latencyNanos < windowMinNanos) {
+                windowMinNanos = latencyNanos;
+            }
+            if (baselineNanos == 0 || ++windowSamples >= BASELINE_WINDOW) {
+                baselineNanos = windowMinNanos;
+                windowMinNanos = Long.MAX_VALUE;
+                windowSamples = 0;
+            }
+            smoothedNanos = smoothedNanos == 0
+                ? latencyNanos
+                : (1 - LATENCY_SMOOTHING) * smoothedNanos + LATENCY_SMOOTHING * latencyNanos;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.gradle.enterprise.summary.http;
+
+import java.net.http.HttpRequest;
+import java.util.regex.Pattern;
+
+public final class ApiRequests {
+    private static final Pattern BUILD_REQUEST_PATH = Pattern.compile(".*/api/builds/[^/]+/.+");
+
+    private ApiRequests() {
+    }
+
+    /**
+     * @return whether the request is for the data of a single build, as opposed to the list of builds
+     */
+    public static boolean isBuildRequest(HttpRequest request) {
+        return BUILD_REQUEST_PATH.matcher(request.uri().getPath()).matches();
+    }
+
+    /**
+     * @return the name of the endpoint the request is for, e.g. {@code gradle-attributes}, or {@code builds} for the list of builds
+     */
+    public static String endpointOf(HttpRequest request) {
+        if (!isBuildRequest(request)) {
+            return "builds";
+        }
+        String path = request.uri().getPath();
+        return path.substring(path.lastIndexOf('/') + 1);
+    }
+
+    /**
+     * @param statusCode the status code of the response, or 0 if the request failed without one
+     * @return whether the server asked to slow down, by rejecting the request as too many or as overloaded,
+     * or by closing the connection with an HTTP/2 GOAWAY
+     */
+    public static boolean isPushback(int statusCode, Throwable failure) {
+        if (statusCode != 0) {
+            return statusCode == 429 || statusCode == 503;
+        }
+        return isGoaway(failure);
+    }
+
+    /**
+     * @return whether the request failed because the server closed the HTTP/2 connection with a GOAWAY,
+     * which means that it was not processed and can safely be sent again
+     */
+    public static boolean isGoaway(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause.getMessage() != null && cause.getMessage().contains("GOAWAY")) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
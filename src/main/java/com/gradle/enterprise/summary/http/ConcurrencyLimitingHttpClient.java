@@ -0,0 +1,194 @@
+package com.gradle.enterprise.summary.http;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sends the requests for the data of single builds only when the {@link AdaptiveConcurrencyLimiter} lets them,
+ * and feeds their latency and outcome back to it.
+ * Requests for the list of builds are not limited.
+ * <p>
+ * A request holds its permit until its response body was received. For bodies that are streamed to the caller,
+ * like the {@link InputStream} the blocking client decodes, that is when the stream was read to its end or closed,
+ * so that the limit bounds the transfers in flight and the latency includes slow bodies.
+ */
+public final class ConcurrencyLimitingHttpClient extends ForwardingHttpClient {
+    private final AdaptiveConcurrencyLimiter limiter;
+
+    public ConcurrencyLimitingHttpClient(HttpClient delegate, AdaptiveConcurrencyLimiter limiter) {
+        super(delegate);
+        this.limiter = limiter;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        if (!ApiRequests.isBuildRequest(request)) {
+            return delegate.send(request, responseBodyHandler);
+        }
+
+        limiter.acquire();
+        Exchange exchange = new Exchange(request);
+        try {
+            return delegate.send(request, exchange.releaseOnBody(responseBodyHandler));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            exchange.release(e);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        if (!ApiRequests.isBuildRequest(request)) {
+            return delegate.sendAsync(request, responseBodyHandler, pushPromiseHandler);
+        }
+
+        return limiter.acquireAsync().thenCompose(permit -> {
+            Exchange exchange = new Exchange(request);
+            try {
+                return delegate.sendAsync(request, exchange.releaseOnBody(responseBodyHandler), pushPromiseHandler)
+                    .whenComplete((response, failure) -> {
+                        if (failure != null) {
+                            exchange.release(failure);
+                        }
+                    });
+            } catch (RuntimeException e) {
+                exchange.release(e);
+                throw e;
+            }
+        });
+    }
+
+    private final class Exchange {
+        private final String endpoint;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile int statusCode;
+
+        private Exchange(HttpRequest request) {
+            this.endpoint = ApiRequests.endpointOf(request);
+        }
+
+        private <T> HttpResponse.BodyHandler<T> releaseOnBody(HttpResponse.BodyHandler<T> handler) {
+            return responseInfo -> {
+                statusCode = responseInfo.statusCode();
+                return new ReleasingSubscriber<>(handler.apply(responseInfo), this);
+            };
+        }
+
+        /**
+         * Releases the permit once, when the response body was received or the request failed, whichever happens first.
+         *
+         * @param failure the failure of the request or of receiving its body, or {@code null} if it succeeded
+         */
+        private void release(Throwable failure) {
+            if (released.compareAndSet(false, true)) {
+                boolean failed = failure != null || statusCode == 0 || statusCode >= 400;
+                limiter.release(endpoint, start, ApiRequests.isPushback(statusCode, failure), failed);
+            }
+        }
+    }
+
+    private static final class ReleasingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private final Exchange exchange;
+
+        private ReleasingSubscriber(HttpResponse.BodySubscriber<T> delegate, Exchange exchange) {
+            this.delegate = delegate;
+            this.exchange = exchange;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public CompletionStage<T> getBody() {
+            // A stream is available before its content was received, the content of other bodies was received once they are available
+            CompletionStage<T> body = delegate.getBody();
+            body.whenComplete((received, failure) -> {
+                if (failure != null || !(received instanceof InputStream)) {
+                    exchange.release(failure);
+                }
+            });
+            return body.thenApply(received -> received instanceof InputStream
+                ? (T) new ReleasingInputStream((InputStream) received, exchange)
+                : received);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            delegate.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+
+    /**
+     * Releases the permit when the stream was read to its end, failed or was closed, whichever happens first.
+     */
+    private static final class ReleasingInputStream extends FilterInputStream {
+        private final Exchange exchange;
+
+        private ReleasingInputStream(InputStream in, Exchange exchange) {
+            super(in);
+            this.exchange = exchange;
+        }
+
+        @Override
+        public int read() throws IOException {
+            try {
+                int b = super.read();
+                if (b < 0) {
+                    exchange.release(null);
+                }
+                return b;
+            } catch (IOException e) {
+                exchange.release(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            try {
+                int n = super.read(b, off, len);
+                if (n < 0) {
+                    exchange.release(null);
+                }
+                return n;
+            } catch (IOException e) {
+                exchange.release(e);
+                throw e;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                super.close();
+            } finally {
+                exchange.release(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.gradle.enterprise.summary.http;
+
+import com.gradle.enterprise.api.client.ApiClient;
+
+import java.net.http.HttpClient;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+/**
+ * An {@link ApiClient} whose HTTP client is shared by all APIs created from it and wrapped by decorators,
+ * which applies them to the blocking as well as to the non-blocking API.
+ * Decorators are applied in the order they are added, so the last one added sees a request first.
+ */
+public class ConfigurableApiClient extends ApiClient {
+    private final List<UnaryOperator<HttpClient>> decorators = new ArrayList<>();
+    private int httpClients = 1;
+    private HttpClient httpClient;
+
+    public ConfigurableApiClient decorateHttpClient(UnaryOperator<HttpClient> decorator) {
+        decorators.add(decorator);
+        return this;
+    }
+
+    /**
+     * @param httpClients the number of HTTP clients, each with its own connections, to spread the requests over
+     */
+    public ConfigurableApiClient setHttpClients(int httpClients) {
+        this.httpClients = httpClients;
+        return this;
+    }
+
+    @Override
+    public synchronized HttpClient getHttpClient() {
+        if (httpClient == null) {
+            httpClient = createHttpClient();
+        }
+        return httpClient;
+    }
+
+    private HttpClient createHttpClient() {
+        HttpClient client;
+        if (httpClients > 1) {
+            List<HttpClient> clients = new ArrayList<>();
+            for (int i = 0; i < httpClients; i++) {
+                clients.add(super.getHttpClient());
+            }
+            client = new HttpClientPool(clients);
+        } else {
+            client = super.getHttpClient();
+        }
+
+        for (UnaryOperator<HttpClient> decorator : decorators) {
+            client = decorator.apply(client);
+        }
+        return client;
+    }
+}
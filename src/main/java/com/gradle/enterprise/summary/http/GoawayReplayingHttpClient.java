@@ -0,0 +1,45 @@
+package com.gradle.enterprise.summary.http;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends a request again when the server closed the connection with an HTTP/2 GOAWAY before processing it,
+ * which servers do when recycling connections.
+ * The client then opens a new connection, so the replay normally succeeds.
+ */
+public final class GoawayReplayingHttpClient extends ForwardingHttpClient {
+    private static final int MAX_REPLAYS = 3;
+
+    public GoawayReplayingHttpClient(HttpClient delegate) {
+        super(delegate);
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        for (int replays = 0; ; replays++) {
+            try {
+                return delegate.send(request, responseBodyHandler);
+            } catch (IOException e) {
+                if (replays >= MAX_REPLAYS || !ApiRequests.isGoaway(e)) {
+                    throw e;
+                }
+            }
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        return sendAsync(request, responseBodyHandler, pushPromiseHandler, 0);
+    }
+
+    private <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler, int replays) {
+        return delegate.sendAsync(request, responseBodyHandler, pushPromiseHandler)
+            .exceptionallyCompose(failure -> replays < MAX_REPLAYS && ApiRequests.isGoaway(failure)
+                ? sendAsync(request, responseBodyHandler, pushPromiseHandler, replays + 1)
+                : CompletableFuture.failedFuture(failure));
+    }
+}
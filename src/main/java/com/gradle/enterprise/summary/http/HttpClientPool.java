@@ -0,0 +1,52 @@
+package com.gradle.enterprise.summary.http;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Spreads the requests over several clients in turn, each of which keeps its own connection to the server,
+ * so that HTTP/2 streams are not all multiplexed over a single connection.
+ */
+public final class HttpClientPool extends ForwardingHttpClient {
+    private final List<HttpClient> clients;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public HttpClientPool(List<HttpClient> clients) {
+        super(clients.get(0));
+        this.clients = List.copyOf(clients);
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        return nextClient().send(request, responseBodyHandler);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        return nextClient().sendAsync(request, responseBodyHandler, pushPromiseHandler);
+    }
+
+    @Override
+    public void shutdown() {
+        clients.forEach(HttpClient::shutdown);
+    }
+
+    @Override
+    public void shutdownNow() {
+        clients.forEach(HttpClient::shutdownNow);
+    }
+
+    @Override
+    public void close() {
+        clients.forEach(HttpClient::close);
+    }
+
+    private HttpClient nextClient() {
+        return clients.get(Math.floorMod(next.getAndIncrement(), clients.size()));
+    }
+}
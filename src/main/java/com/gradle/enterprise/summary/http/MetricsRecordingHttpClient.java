@@ -0,0 +1,117 @@
+package com.gradle.enterprise.summary.http;
+
+import com.gradle.enterprise.summary.metrics.PipelineMetrics;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Records every request in the {@link PipelineMetrics}: the time until its response headers arrived, its status code,
+ * or that it failed without a response, and the bytes of the response body as they are received.
+ * Added first, so that it sees every request actually sent, including replays.
+ */
+public final class MetricsRecordingHttpClient extends ForwardingHttpClient {
+    private final PipelineMetrics metrics;
+
+    public MetricsRecordingHttpClient(HttpClient delegate, PipelineMetrics metrics) {
+        super(delegate);
+        this.metrics = metrics;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        Exchange exchange = new Exchange(ApiRequests.endpointOf(request));
+        try {
+            return delegate.send(request, exchange.record(responseBodyHandler));
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            exchange.complete(0);
+            throw e;
+        }
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        Exchange exchange = new Exchange(ApiRequests.endpointOf(request));
+        return delegate.sendAsync(request, exchange.record(responseBodyHandler), pushPromiseHandler)
+            .whenComplete((response, failure) -> {
+                if (failure != null) {
+                    exchange.complete(0);
+                }
+            });
+    }
+
+    private final class Exchange {
+        private final String endpoint;
+        private final long start = System.nanoTime();
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Exchange(String endpoint) {
+            this.endpoint = endpoint;
+            metrics.requestStarted();
+        }
+
+        private <T> HttpResponse.BodyHandler<T> record(HttpResponse.BodyHandler<T> handler) {
+            return responseInfo -> {
+                complete(responseInfo.statusCode());
+                return new CountingSubscriber<>(handler.apply(responseInfo), endpoint);
+            };
+        }
+
+        /**
+         * Records the request once, when its response headers arrived or it failed, whichever happens first.
+         */
+        private void complete(int statusCode) {
+            if (completed.compareAndSet(false, true)) {
+                metrics.requestCompleted(endpoint, statusCode, System.nanoTime() - start);
+            }
+        }
+    }
+
+    private final class CountingSubscriber<T> implements HttpResponse.BodySubscriber<T> {
+        private final HttpResponse.BodySubscriber<T> delegate;
+        private final String endpoint;
+
+        private CountingSubscriber(HttpResponse.BodySubscriber<T> delegate, String endpoint) {
+            this.delegate = delegate;
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public CompletionStage<T> getBody() {
+            return delegate.getBody();
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            delegate.onSubscribe(subscription);
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> items) {
+            long bytes = 0;
+            for (ByteBuffer item : items) {
+                bytes += item.remaining();
+            }
+            metrics.bytesReceived(endpoint, bytes);
+            delegate.onNext(items);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            delegate.onError(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            delegate.onComplete();
+        }
+    }
+}
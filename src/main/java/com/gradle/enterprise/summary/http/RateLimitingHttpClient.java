@@ -0,0 +1,45 @@
+package com.gradle.enterprise.summary.http;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Sends requests only as fast as their {@link TokenBucket} lets them,
+ * with separate buckets for the requests for the list of builds and for the data of single builds.
+ * A bucket that is {@code null} does not limit its requests.
+ */
+public final class RateLimitingHttpClient extends ForwardingHttpClient {
+    private final TokenBucket buildsListRate;
+    private final TokenBucket buildDataRate;
+
+    public RateLimitingHttpClient(HttpClient delegate, TokenBucket buildsListRate, TokenBucket buildDataRate) {
+        super(delegate);
+        this.buildsListRate = buildsListRate;
+        this.buildDataRate = buildDataRate;
+    }
+
+    @Override
+    public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler) throws IOException, InterruptedException {
+        TokenBucket rate = rateFor(request);
+        if (rate != null) {
+            rate.acquire();
+        }
+        return delegate.send(request, responseBodyHandler);
+    }
+
+    @Override
+    public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> responseBodyHandler, HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+        TokenBucket rate = rateFor(request);
+        if (rate == null) {
+            return delegate.sendAsync(request, responseBodyHandler, pushPromiseHandler);
+        }
+        return rate.acquireAsync().thenCompose(permit -> delegate.sendAsync(request, responseBodyHandler, pushPromiseHandler));
+    }
+
+    private TokenBucket rateFor(HttpRequest request) {
+        return ApiRequests.isBuildRequest(request) ? buildDataRate : buildsListRate;
+    }
+}
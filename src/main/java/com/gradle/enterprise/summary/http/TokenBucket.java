@@ -0,0 +1,96 @@
+package com.gradle.enterprise.summary.http;
+
+import com.gradle.enterprise.summary.metrics.DurationFormatter;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the rate of requests to a number per second, allowing bursts of up to one second's worth of requests.
+ * <p>
+ * A request that finds no token takes one on credit and waits until it has been refilled, so requests are let
+ * through in the order they arrived and the rate is never exceeded however many threads are waiting.
+ */
+public final class TokenBucket {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final String name;
+    private final double requestsPerSecond;
+    private final double capacity;
+
+    private double tokens;
+    private long lastRefillNanos = System.nanoTime();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong delayedRequests = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public TokenBucket(String name, double requestsPerSecond) {
+        if (!(requestsPerSecond > 0 && Double.isFinite(requestsPerSecond))) {
+            throw new IllegalArgumentException("The rate must be a positive number: " + requestsPerSecond);
+        }
+        this.name = name;
+        this.requestsPerSecond = requestsPerSecond;
+        this.capacity = Math.max(1, requestsPerSecond);
+        this.tokens = capacity;
+    }
+
+    public void acquire() throws InterruptedException {
+        long waitNanos = reserve();
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * @return a future that completes once the request may be sent
+     */
+    public CompletableFuture<Void> acquireAsync() {
+        long waitNanos = reserve();
+        if (waitNanos <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(() -> {
+        }, CompletableFuture.delayedExecutor(waitNanos, TimeUnit.NANOSECONDS));
+    }
+
+    public void printStatistics() {
+        if (requests.get() == 0) {
+            return;
+        }
+        System.out.printf("Rate limit | %s | %d requests | %d waited for the rate limit | %s waited in total | %d ms average wait | %d ms longest wait\n",
+            name,
+            requests.get(),
+            delayedRequests.get(),
+            DurationFormatter.formatMillis(TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get())),
+            TimeUnit.NANOSECONDS.toMillis(totalWaitNanos.get() / requests.get()),
+            TimeUnit.NANOSECONDS.toMillis(maxWaitNanos.get()));
+    }
+
+    /**
+     * Takes a token, possibly on credit.
+     *
+     * @return how long to wait before sending the request
+     */
+    private long reserve() {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * requestsPerSecond / NANOS_PER_SECOND);
+            lastRefillNanos = now;
+
+            tokens -= 1;
+            waitNanos = tokens >= 0 ? 0 : (long) (-tokens * NANOS_PER_SECOND / requestsPerSecond);
+        }
+
+        requests.incrementAndGet();
+        if (waitNanos > 0) {
+            delayedRequests.incrementAndGet();
+            totalWaitNanos.addAndGet(waitNanos);
+            maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        }
+        return waitNanos;
+    }
+}
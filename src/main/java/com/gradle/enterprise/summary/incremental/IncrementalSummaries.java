@@ -0,0 +1,171 @@
+package com.gradle.enterprise.summary.incremental;
+
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+import com.gradle.enterprise.summary.InstantUtils;
+import com.gradle.enterprise.summary.accumulator.PooledSummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import com.gradle.enterprise.summary.accumulator.SummarySink;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Summaries that are carried over from one run to the next, so that each run only needs to fetch the builds
+ * that became available since the previous one.
+ * <p>
+ * Builds are accumulated in one partition per UTC day, which lets days that have left the time window be dropped again.
+ * As a consequence the window always starts at the beginning of the day it starts on, see {@link #startOfWindow(Instant)}.
+ * Builds that could not be processed in the run they were fetched in are not retried by later runs.
+ * <p>
+ * The state records the server and the project its builds came from, so that it is not continued with the builds of another.
+ */
+public final class IncrementalSummaries implements SummarySink, Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final ConcurrentNavigableMap<LocalDate, PooledSummaryAccumulators> partitions = new ConcurrentSkipListMap<>();
+    private final SummarySettings settings;
+    private final String serverUrl;
+    private final String projectName;
+    private String lastBuildId;
+    private long lastBuildAvailableAt;
+    private transient volatile LongConsumer lockWaits;
+
+    private IncrementalSummaries(SummarySettings settings, String serverUrl, String projectName) {
+        this.settings = settings;
+        this.serverUrl = serverUrl;
+        this.projectName = projectName;
+    }
+
+    /**
+     * @param settings    the settings of the summaries if there is no stored state yet, stored state keeps its own
+     * @param serverUrl   the server the builds are fetched from if there is no stored state yet
+     * @param projectName the project the builds are limited to if there is no stored state yet, or {@code null} for all
+     */
+    public static IncrementalSummaries loadOrCreate(Path file, SummarySettings settings, String serverUrl, String projectName) throws IOException {
+        if (!Files.exists(file)) {
+            return new IncrementalSummaries(settings, serverUrl, projectName);
+        }
+
+        try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(file))))) {
+            return (IncrementalSummaries) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected content in " + file, e);
+        }
+    }
+
+    /**
+     * @return the start of the UTC day of the given instant, where the time window of the summaries starts
+     */
+    public static Instant startOfWindow(Instant start) {
+        return start.truncatedTo(ChronoUnit.DAYS);
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    /**
+     * @return the project the builds are limited to, or {@code null} for all projects
+     */
+    public String getProjectName() {
+        return projectName;
+    }
+
+    public void save(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile))))) {
+            out.writeObject(this);
+        }
+        // Never leave a truncated state behind if the run is killed while saving
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Drops the partitions of the days that lie entirely before the start of the time window.
+     */
+    public void retireBefore(Instant windowStart) {
+        partitions.headMap(dayOf(windowStart.toEpochMilli())).clear();
+    }
+
+    /**
+     * @return the build to continue fetching after, if the previous run ended inside the time window
+     */
+    public Optional<String> getLastBuildId(Instant windowStart) {
+        if (lastBuildId == null || InstantUtils.fromUTC(lastBuildAvailableAt).isBefore(windowStart)) {
+            return Optional.empty();
+        }
+        return Optional.of(lastBuildId);
+    }
+
+    /**
+     * Records the last build fetched in this run, which the next run will continue after.
+     */
+    public void setLastBuild(Build build) {
+        this.lastBuildId = build.getId();
+        this.lastBuildAvailableAt = build.getAvailableAt();
+    }
+
+    /**
+     * @param lockWaits receives the nanoseconds of every wait for the lock on the summaries of a partition
+     */
+    public void recordLockWaits(LongConsumer lockWaits) {
+        this.lockWaits = lockWaits;
+        partitions.values().forEach(partition -> partition.recordLockWaits(lockWaits));
+    }
+
+    @Override
+    public void addGradleBuild(Build build, GradleAttributes attributes, GradleBuildCachePerformance model) {
+        partitionFor(build).addGradleBuild(build, attributes, model);
+    }
+
+    @Override
+    public void addMavenBuild(Build build, MavenAttributes attributes, MavenBuildCachePerformance model) {
+        partitionFor(build).addMavenBuild(build, attributes, model);
+    }
+
+    @Override
+    public SummaryAccumulators getSummaries() {
+        SummaryAccumulators summaries = new SummaryAccumulators(settings);
+        partitions.values().forEach(partition -> summaries.merge(partition.getSummaries()));
+        return summaries;
+    }
+
+    private PooledSummaryAccumulators partitionFor(Build build) {
+        return partitions.computeIfAbsent(dayOf(build.getAvailableAt()), day -> {
+            PooledSummaryAccumulators partition = new PooledSummaryAccumulators(settings);
+            if (lockWaits != null) {
+                partition.recordLockWaits(lockWaits);
+            }
+            return partition;
+        });
+    }
+
+    private static LocalDate dayOf(long epochMillis) {
+        return LocalDate.ofInstant(Instant.ofEpochMilli(epochMillis), ZoneOffset.UTC);
+    }
+}
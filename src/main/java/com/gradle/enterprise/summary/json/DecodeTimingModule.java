@@ -0,0 +1,71 @@
+package com.gradle.enterprise.summary.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.std.DelegatingDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.function.LongConsumer;
+
+/**
+ * Times the decoding of the responses of the API, by wrapping the deserializers of the models it returns.
+ * For the blocking executors the body is decoded while it is received, so the time includes waiting for the rest of it.
+ */
+public final class DecodeTimingModule extends SimpleModule {
+    private static final Set<Class<?>> TIMED_MODELS = Set.of(
+        Build.class,
+        GradleAttributes.class,
+        GradleBuildCachePerformance.class,
+        MavenAttributes.class,
+        MavenBuildCachePerformance.class
+    );
+
+    /**
+     * @param decoded receives the nanoseconds it took to decode each model
+     */
+    public DecodeTimingModule(LongConsumer decoded) {
+        super("DecodeTimingModule");
+
+        setDeserializerModifier(new BeanDeserializerModifier() {
+            @Override
+            public JsonDeserializer<?> modifyDeserializer(DeserializationConfig config, BeanDescription beanDesc, JsonDeserializer<?> deserializer) {
+                return TIMED_MODELS.contains(beanDesc.getBeanClass()) ? new TimingDeserializer(deserializer, decoded) : deserializer;
+            }
+        });
+    }
+
+    private static final class TimingDeserializer extends DelegatingDeserializer {
+        private final LongConsumer decoded;
+
+        private TimingDeserializer(JsonDeserializer<?> delegate, LongConsumer decoded) {
+            super(delegate);
+            this.decoded = decoded;
+        }
+
+        @Override
+        protected JsonDeserializer<?> newDelegatingInstance(JsonDeserializer<?> newDelegatee) {
+            return new TimingDeserializer(newDelegatee, decoded);
+        }
+
+        @Override
+        public Object deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.deserialize(parser, context);
+            } finally {
+                decoded.accept(System.nanoTime() - start);
+            }
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.gradle.enterprise.summary.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Reads an object with the streaming parser, extracting only the given fields and skipping all others
+ * without materializing them.
+ */
+final class ProjectionDeserializer<T> extends StdDeserializer<T> {
+    private final Class<T> type;
+    private final Supplier<T> factory;
+    private final Map<String, FieldReader<T>> fields;
+
+    ProjectionDeserializer(Class<T> type, Supplier<T> factory, Map<String, FieldReader<T>> fields) {
+        super(type);
+        this.type = type;
+        this.factory = factory;
+        this.fields = fields;
+    }
+
+    @Override
+    public T deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+        if (!parser.isExpectedStartObjectToken() && !parser.hasToken(JsonToken.FIELD_NAME)) {
+            return type.cast(context.handleUnexpectedToken(type, parser));
+        }
+
+        T value = factory.get();
+        String name = parser.isExpectedStartObjectToken() ? parser.nextFieldName() : parser.currentName();
+        for (; name != null; name = parser.nextFieldName()) {
+            JsonToken token = parser.nextToken();
+            FieldReader<T> field = fields.get(name);
+            if (field == null) {
+                parser.skipChildren();
+            } else if (token != JsonToken.VALUE_NULL) {
+                field.read(parser, value);
+            }
+        }
+        return value;
+    }
+
+    @FunctionalInterface
+    interface FieldReader<T> {
+        void read(JsonParser parser, T target) throws IOException;
+    }
+}
@@ -0,0 +1,44 @@
+package com.gradle.enterprise.summary.json;
+
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformanceTaskExecutionEntry;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformanceGoalExecutionEntry;
+
+import java.util.Map;
+
+/**
+ * Decodes the task and goal executions of the build cache performance, of which large builds have thousands,
+ * into entries that only hold the fields the accumulators read.
+ * The other fields are skipped by the parser instead of being decoded into objects and strings.
+ */
+public final class ProjectionModule extends SimpleModule {
+
+    public ProjectionModule() {
+        super("ProjectionModule");
+
+        addDeserializer(GradleBuildCachePerformanceTaskExecutionEntry.class, new ProjectionDeserializer<>(
+            GradleBuildCachePerformanceTaskExecutionEntry.class,
+            GradleBuildCachePerformanceTaskExecutionEntry::new,
+            Map.of(
+                "taskPath", (parser, entry) -> entry.setTaskPath(parser.getText()),
+                "taskType", (parser, entry) -> entry.setTaskType(parser.getText()),
+                "avoidanceOutcome", (parser, entry) -> entry.setAvoidanceOutcome(GradleBuildCachePerformanceTaskExecutionEntry.AvoidanceOutcomeEnum.fromValue(parser.getText())),
+                "duration", (parser, entry) -> entry.setDuration(parser.getLongValue()),
+                "avoidanceSavings", (parser, entry) -> entry.setAvoidanceSavings(parser.getLongValue()),
+                "nonCacheabilityCategory", (parser, entry) -> entry.setNonCacheabilityCategory(GradleBuildCachePerformanceTaskExecutionEntry.NonCacheabilityCategoryEnum.fromValue(parser.getText()))
+            )
+        ));
+
+        addDeserializer(MavenBuildCachePerformanceGoalExecutionEntry.class, new ProjectionDeserializer<>(
+            MavenBuildCachePerformanceGoalExecutionEntry.class,
+            MavenBuildCachePerformanceGoalExecutionEntry::new,
+            Map.of(
+                "goalName", (parser, entry) -> entry.setGoalName(parser.getText()),
+                "mojoType", (parser, entry) -> entry.setMojoType(parser.getText()),
+                "avoidanceOutcome", (parser, entry) -> entry.setAvoidanceOutcome(MavenBuildCachePerformanceGoalExecutionEntry.AvoidanceOutcomeEnum.fromValue(parser.getText())),
+                "duration", (parser, entry) -> entry.setDuration(parser.getLongValue()),
+                "avoidanceSavings", (parser, entry) -> entry.setAvoidanceSavings(parser.getLongValue())
+            )
+        ));
+    }
+}
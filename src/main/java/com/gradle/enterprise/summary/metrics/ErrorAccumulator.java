@@ -1,35 +1,171 @@
 package com.gradle.enterprise.summary.metrics;
 
-import java.util.HashSet;
-import java.util.Set;
+import com.gradle.enterprise.api.client.ApiException;
+import com.gradle.enterprise.api.model.ApiProblem;
+import com.gradle.enterprise.summary.ApiProblemParser;
+import com.gradle.enterprise.summary.writer.ErrorsWriter;
 
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Collects the failed API calls from any number of threads in bounded memory.
+ * <p>
+ * Errors are counted by {@link Kind}, that is by endpoint, HTTP status code and problem type, and handed to the
+ * {@link ErrorsWriter} as they happen instead of being kept. Only the first {@link #SAMPLED_BODIES_PER_KIND}
+ * response bodies of every kind are written, so an outage that fails every request does not write the same body
+ * over and over, and after {@link #MAX_ERRORS} errors the others are only counted.
+ */
 public class ErrorAccumulator {
-    private static final Integer MAX_ERRORS = 100_000;
-    private static final Set<Error> errors = new HashSet<>();
+    private static final int MAX_ERRORS = 100_000;
+    private static final int SAMPLED_BODIES_PER_KIND = 5;
+    private static final int MAX_BODY_LENGTH = 4 * 1024;
+    // The message of the exceptions thrown for error responses, see openapi/api.mustache
+    private static final Pattern OPERATION = Pattern.compile("^get([A-Za-z]+) call failed with: ");
+
+    private final ConcurrentMap<Kind, Count> counts = new ConcurrentHashMap<>();
+    private final AtomicLong written = new AtomicLong();
+    private final ErrorsWriter errorsWriter;
+
+    public ErrorAccumulator(ErrorsWriter errorsWriter) {
+        this.errorsWriter = errorsWriter;
+    }
+
+    /**
+     * @param buildId the build whose data was requested, or a description of the request for other requests
+     */
+    public void addError(String buildId, ApiException e) {
+        Kind kind = new Kind(endpointOf(e), e.getCode(), problemTypeOf(e));
+        Count count = counts.computeIfAbsent(kind, k -> new Count());
+        count.errors.increment();
+
+        if (written.getAndIncrement() >= MAX_ERRORS) {
+            return;
+        }
+        String responseBody = null;
+        if (e.getResponseBody() != null && count.sampledBodies.getAndIncrement() < SAMPLED_BODIES_PER_KIND) {
+            responseBody = e.getResponseBody().length() > MAX_BODY_LENGTH ? e.getResponseBody().substring(0, MAX_BODY_LENGTH) : e.getResponseBody();
+        }
+        errorsWriter.write(new Error(buildId, kind, responseBody, messageOf(e)));
+    }
+
+    public boolean isEmpty() {
+        return counts.isEmpty();
+    }
 
+    /**
+     * @return the number of errors of every kind, the most frequent first
+     */
+    public Map<Kind, Long> getCounts() {
+        Map<Kind, Long> snapshot = new LinkedHashMap<>();
+        counts.entrySet().stream()
+            .sorted(Comparator.comparing((Map.Entry<Kind, Count> entry) -> entry.getValue().errors.sum()).reversed())
+            .forEach(entry -> snapshot.put(entry.getKey(), entry.getValue().errors.sum()));
+        return snapshot;
+    }
 
-    public ErrorAccumulator() {
+    public void printStatistics() {
+        if (counts.isEmpty()) {
+            return;
+        }
+        getCounts().forEach((kind, count) -> System.out.printf("Errors | %6d | %-30s | HTTP %3d | %s\n",
+            count, kind.endpoint, kind.code, kind.problemType == null ? "-" : kind.problemType));
+        long dropped = written.get() - MAX_ERRORS;
+        if (dropped > 0) {
+            System.out.printf("Errors | %d errors were only counted, after the first %d were written\n", dropped, MAX_ERRORS);
+        }
     }
 
-    public void addError(Error error) {
-        if (errors.size() < MAX_ERRORS) {
-            errors.add(error);
+    /**
+     * @return the endpoint of the request, or {@code unknown} if it failed without a response
+     */
+    private static String endpointOf(ApiException e) {
+        Matcher matcher = e.getMessage() == null ? null : OPERATION.matcher(e.getMessage());
+        if (matcher == null || !matcher.find()) {
+            return "unknown";
         }
+        // getGradleBuildCachePerformance is served on gradle-build-cache-performance
+        return matcher.group(1).replaceAll("([a-z])([A-Z])", "$1-$2").toLowerCase();
     }
 
-    public Set<Error> getErrors() {
-        return errors;
+    /**
+     * @return the message of the exception without the response body, which it ends with for error responses
+     */
+    private static String messageOf(ApiException e) {
+        String message = e.getMessage();
+        if (message != null && e.getResponseBody() != null && message.endsWith(" - " + e.getResponseBody())) {
+            return message.substring(0, message.length() - e.getResponseBody().length() - 3);
+        }
+        return message;
+    }
+
+    private static String problemTypeOf(ApiException e) {
+        if (e.getCode() == 0 || e.getResponseHeaders() == null) {
+            return null;
+        }
+        try {
+            return ApiProblemParser.maybeParse(e).map(ApiProblem::getType).orElse(null);
+        } catch (RuntimeException parseFailure) {
+            return null;
+        }
+    }
+
+    private static final class Count {
+        private final LongAdder errors = new LongAdder();
+        private final AtomicInteger sampledBodies = new AtomicInteger();
+    }
+
+    public static final class Kind {
+        public final String endpoint;
+        public final int code;
+        public final String problemType;
+
+        public Kind(String endpoint, int code, String problemType) {
+            this.endpoint = endpoint;
+            this.code = code;
+            this.problemType = problemType;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Kind)) {
+                return false;
+            }
+            Kind kind = (Kind) o;
+            return code == kind.code && endpoint.equals(kind.endpoint) && Objects.equals(problemType, kind.problemType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(endpoint, code, problemType);
+        }
     }
 
     public static class Error {
-        public String responseBody;
-        public String detailMessage;
-        public String buildId;
-        public int code;
+        public final String buildId;
+        public final String endpoint;
+        public final int code;
+        public final String problemType;
+        public final String responseBody;
+        public final String detailMessage;
 
-        public Error(String buildId, int code, String responseBody, String detailMessage) {
+        public Error(String buildId, Kind kind, String responseBody, String detailMessage) {
             this.buildId = buildId;
-            this.code = code;
+            this.endpoint = kind.endpoint;
+            this.code = kind.code;
+            this.problemType = kind.problemType;
             this.responseBody = responseBody;
             this.detailMessage = detailMessage;
         }
@@ -8,25 +8,81 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
-import java.util.concurrent.atomic.AtomicLong;
-
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+/**
+ * Counts the builds queued and processed, and reports the progress from a thread of its own at a fixed interval,
+ * so that the processing threads only ever increment counters that they do not contend on.
+ * <p>
+ * The throughput and the time left are estimated over the samples of the last {@link #WINDOW},
+ * so they follow changes of the throughput instead of averaging over the whole run.
+ */
 public class MetricsAccumulator {
     private Logger logger = LoggerFactory.getLogger(MetricsAccumulator.class);
     public static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm").withZone(ZoneId.from(ZoneOffset.UTC));
 
-    private final AtomicLong failedApiCalls = new AtomicLong(0);
-    private final AtomicLong lastAvailableAt = new AtomicLong(-1);
-    private final AtomicLong totalBuildsProcessed = new AtomicLong(0);
-    private final long initialNrOfBuilds;
+    private static final Duration REPORT_INTERVAL = Duration.ofSeconds(5);
+    private static final Duration WINDOW = Duration.ofSeconds(30);
+
+    private final LongAdder failedApiCalls = new LongAdder();
+    private final LongAccumulator lastAvailableAt = new LongAccumulator(Math::max, -1);
+    private final LongAdder totalBuildsProcessed = new LongAdder();
+    private final LongAdder totalBuilds = new LongAdder();
+
+    // Only used by the reporting thread, and by the thread stopping the processing once the reporting thread stopped
+    private final Deque<Sample> samples = new ArrayDeque<>();
 
     private Instant processingStartTime;
+    private ScheduledExecutorService reporter;
+    private volatile IntSupplier concurrencyLimit;
 
     public MetricsAccumulator(long initialNrOfBuilds) {
-        this.initialNrOfBuilds = initialNrOfBuilds;
+        this.totalBuilds.add(initialNrOfBuilds);
+    }
+
+    public void markBuildQueued() {
+        totalBuilds.increment();
+    }
+
+    /**
+     * Shows the current limit of concurrent API requests in the progress.
+     */
+    public void reportConcurrencyLimit(IntSupplier concurrencyLimit) {
+        this.concurrencyLimit = concurrencyLimit;
     }
 
     public void startProcessing() {
         processingStartTime = Instant.now();
+        samples.add(new Sample(System.nanoTime(), 0));
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "progress-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reporter.scheduleAtFixedRate(this::printMetrics, REPORT_INTERVAL.toMillis(), REPORT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reporting the progress, after reporting it a last time.
+     */
+    public void stopProcessing() {
+        if (reporter == null) {
+            return;
+        }
+        reporter.shutdownNow();
+        try {
+            reporter.awaitTermination(REPORT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        printMetrics();
     }
 
     public void markBuildProcessedSuccessfully(Long buildAvailableAt) {
@@ -34,31 +90,35 @@ public class MetricsAccumulator {
     }
 
     public void markBuildProcessedWithError(Long buildAvailableAt) {
-        failedApiCalls.getAndIncrement();
+        failedApiCalls.increment();
 
         markBuild(buildAvailableAt);
     }
 
-    private void markBuild(Long buildAvailableAt) {
-        if (totalBuildsProcessed.incrementAndGet() % 100 == 0 && totalBuildsProcessed.get() > 0) {
-            if (lastAvailableAt.get() < buildAvailableAt) {
-                lastAvailableAt.set(buildAvailableAt);
-            }
+    public long getBuildsProcessedSuccessfully() {
+        return totalBuildsProcessed.sum() - failedApiCalls.sum();
+    }
 
-            printMetrics();
+    private void markBuild(Long buildAvailableAt) {
+        if (buildAvailableAt != null) {
+            lastAvailableAt.accumulate(buildAvailableAt);
         }
+        totalBuildsProcessed.increment();
     }
 
-    public synchronized void printMetrics() {
+    private void printMetrics() {
         try {
-            long secondsLeft = estimateTimeLeft();
-            long buildsPerSec = estimateThroughput();
-            long progressPercent = estimateProgress();
-            Thread.sleep(1000l);
-            System.out.printf("Processing | %12s builds | %3d errors | %4d builds/sec | Currently processing: %s | Progress: %2d%% | %s elapsed | %s ETA \n",
-                totalBuildsProcessed.get() + "/" + initialNrOfBuilds,
-                failedApiCalls.get(),
+            long processed = totalBuildsProcessed.sum();
+            long total = totalBuilds.sum();
+            double buildsPerSec = sampleThroughput(processed);
+            long secondsLeft = buildsPerSec > 0 ? (long) ((total - processed) / buildsPerSec) : -1;
+            long progressPercent = total == 0 ? 0 : processed * 100 / total;
+            IntSupplier limit = concurrencyLimit;
+            System.out.printf("Processing | %12s builds | %3d errors | %6.1f builds/sec |%s Currently processing: %s | Progress: %2d%% | %s elapsed | %s ETA \n",
+                processed + "/" + total,
+                failedApiCalls.sum(),
                 buildsPerSec,
+                limit == null ? "" : String.format(" %4d requests limit |", limit.getAsInt()),
                 FORMATTER.format(Instant.ofEpochMilli(lastAvailableAt.get())),
                 progressPercent,
                 DurationFormatter.formatSeconds(Duration.between(processingStartTime, Instant.now()).getSeconds()),
@@ -69,26 +129,30 @@ public class MetricsAccumulator {
         }
     }
 
-    private long estimateThroughput() {
-        if (Duration.between(processingStartTime, Instant.now()).getSeconds() == 0) {
-            return -1;
+    /**
+     * Adds a sample of the builds processed so far and drops the samples that left the window.
+     *
+     * @return the builds processed per second since the oldest sample in the window
+     */
+    private double sampleThroughput(long processed) {
+        long now = System.nanoTime();
+        samples.addLast(new Sample(now, processed));
+        while (samples.size() > 2 && now - samples.peekFirst().nanoTime > WINDOW.toNanos()) {
+            samples.removeFirst();
         }
 
-        return totalBuildsProcessed.get() / Duration.between(processingStartTime, Instant.now()).getSeconds();
+        Sample oldest = samples.peekFirst();
+        long elapsed = now - oldest.nanoTime;
+        return elapsed == 0 ? 0 : (processed - oldest.processed) * 1e9 / elapsed;
     }
 
-    private long estimateTimeLeft() {
-        long throughput = estimateThroughput();
+    private static final class Sample {
+        private final long nanoTime;
+        private final long processed;
 
-        if (throughput < 0) {
-            return -1;
+        private Sample(long nanoTime, long processed) {
+            this.nanoTime = nanoTime;
+            this.processed = processed;
         }
-
-        return (initialNrOfBuilds - totalBuildsProcessed.get()) / throughput;
-    }
-
-    private long estimateProgress() {
-        return totalBuildsProcessed.get() * 100 / initialNrOfBuilds;
     }
-
 }
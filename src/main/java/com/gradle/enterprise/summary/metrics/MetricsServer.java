@@ -0,0 +1,49 @@
+package com.gradle.enterprise.summary.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the {@link PipelineMetrics} in the Prometheus text format on {@code /metrics}, on the loopback interface only.
+ */
+public final class MetricsServer implements AutoCloseable {
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private final HttpServer server;
+
+    private MetricsServer(HttpServer server) {
+        this.server = server;
+    }
+
+    public static MetricsServer start(int port, PipelineMetrics metrics) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> serve(exchange, metrics));
+        server.start();
+        return new MetricsServer(server);
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private static void serve(HttpExchange exchange, PipelineMetrics metrics) throws IOException {
+        try (exchange) {
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            // Chunked, as the length is only known once the metrics are written
+            exchange.sendResponseHeaders(200, 0);
+            metrics.writePrometheus(new PrintWriter(new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)));
+        }
+    }
+}
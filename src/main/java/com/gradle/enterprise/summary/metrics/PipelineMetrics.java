@@ -0,0 +1,230 @@
+package com.gradle.enterprise.summary.metrics;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.gradle.enterprise.summary.accumulator.table.DurationHistogram;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntSupplier;
+
+/**
+ * Instruments the pipeline that fetches and processes the builds: the latency, responses and bytes of every
+ * API endpoint, the requests in flight, the time spent decoding responses and waiting for the accumulators,
+ * the errors of the {@link ErrorAccumulator} by kind, and gauges such as the depth of the queues between the stages.
+ * <p>
+ * Safe to update from any thread, and exposed in the Prometheus text format and as JSON.
+ */
+public final class PipelineMetrics {
+    private static final String PREFIX = "ge_project_summary_";
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+    private final ConcurrentMap<String, Endpoint> endpoints = new ConcurrentSkipListMap<>();
+    private final Map<String, IntSupplier> gauges = new ConcurrentSkipListMap<>();
+    private final AtomicInteger requestsInFlight = new AtomicInteger();
+    private final Timer decoding = new Timer();
+    private final Timer accumulatorLockWaits = new Timer();
+    private volatile ErrorAccumulator errors;
+
+    public void requestStarted() {
+        requestsInFlight.incrementAndGet();
+    }
+
+    /**
+     * @param statusCode the status code of the response, or 0 if the request failed without one
+     * @param nanos      the time until the response headers were received or the request failed
+     */
+    public void requestCompleted(String endpoint, int statusCode, long nanos) {
+        requestsInFlight.decrementAndGet();
+        endpoint(endpoint).record(statusCode, nanos);
+    }
+
+    public void bytesReceived(String endpoint, long bytes) {
+        endpoint(endpoint).bytesReceived.addAndGet(bytes);
+    }
+
+    public void decoded(long nanos) {
+        decoding.record(nanos);
+    }
+
+    public void accumulatorLockWaited(long nanos) {
+        accumulatorLockWaits.record(nanos);
+    }
+
+    /**
+     * Reports the current value of the supplier under the given name, e.g. the number of builds in a queue.
+     */
+    public void registerGauge(String name, IntSupplier value) {
+        gauges.put(name, value);
+    }
+
+    /**
+     * Reports the number of errors of every kind collected by the accumulator.
+     */
+    public void registerErrors(ErrorAccumulator errors) {
+        this.errors = errors;
+    }
+
+    public void writePrometheus(PrintWriter out) {
+        header(out, "requests_in_flight", "gauge", "API requests waiting for their response");
+        out.printf("%srequests_in_flight %d%n", PREFIX, requestsInFlight.get());
+
+        header(out, "request_duration_seconds", "summary", "Time until the response headers of API requests were received");
+        endpoints.forEach((name, endpoint) -> {
+            DurationHistogram latency = endpoint.latencySnapshot();
+            for (double quantile : QUANTILES) {
+                out.printf("%srequest_duration_seconds{endpoint=\"%s\",quantile=\"%s\"} %s%n", PREFIX, name, quantile, seconds(TimeUnit.MILLISECONDS.toNanos(latency.getPercentile(quantile))));
+            }
+            out.printf("%srequest_duration_seconds_sum{endpoint=\"%s\"} %s%n", PREFIX, name, seconds(endpoint.totalNanos.get()));
+            out.printf("%srequest_duration_seconds_count{endpoint=\"%s\"} %d%n", PREFIX, name, endpoint.requests.get());
+        });
+
+        header(out, "responses_total", "counter", "API responses by status code, 0 for requests that failed without a response");
+        endpoints.forEach((name, endpoint) -> endpoint.responses.forEach((code, count) ->
+            out.printf("%sresponses_total{endpoint=\"%s\",code=\"%d\"} %d%n", PREFIX, name, code, count.get())));
+
+        header(out, "response_bytes_total", "counter", "Bytes of API response bodies received");
+        endpoints.forEach((name, endpoint) -> out.printf("%sresponse_bytes_total{endpoint=\"%s\"} %d%n", PREFIX, name, endpoint.bytesReceived.get()));
+
+        decoding.writePrometheus(out, "decode_seconds", "Time spent decoding API responses");
+        accumulatorLockWaits.writePrometheus(out, "accumulator_lock_wait_seconds", "Time spent waiting for a lock on the summaries");
+
+        ErrorAccumulator errors = this.errors;
+        if (errors != null) {
+            header(out, "errors_total", "counter", "Failed API requests by status code and problem type, 0 for requests that failed without a response");
+            errors.getCounts().forEach((kind, count) -> out.printf("%serrors_total{endpoint=\"%s\",code=\"%d\",problem_type=\"%s\"} %d%n",
+                PREFIX, kind.endpoint, kind.code, kind.problemType == null ? "" : kind.problemType, count));
+        }
+
+        gauges.forEach((name, value) -> {
+            header(out, name, "gauge", name.replace('_', ' '));
+            out.printf("%s%s %d%n", PREFIX, name, value.getAsInt());
+        });
+        out.flush();
+    }
+
+    public void writeJson(JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeNumberField("requestsInFlight", requestsInFlight.get());
+
+        generator.writeObjectFieldStart("endpoints");
+        for (Map.Entry<String, Endpoint> entry : endpoints.entrySet()) {
+            Endpoint endpoint = entry.getValue();
+            DurationHistogram latency = endpoint.latencySnapshot();
+            generator.writeObjectFieldStart(entry.getKey());
+            generator.writeNumberField("requests", endpoint.requests.get());
+            generator.writeNumberField("bytesReceived", endpoint.bytesReceived.get());
+            generator.writeObjectFieldStart("latencyMillis");
+            generator.writeNumberField("p50", latency.getPercentile(0.5));
+            generator.writeNumberField("p90", latency.getPercentile(0.9));
+            generator.writeNumberField("p99", latency.getPercentile(0.99));
+            generator.writeNumberField("max", latency.getMax());
+            generator.writeEndObject();
+            generator.writeObjectFieldStart("responses");
+            for (Map.Entry<Integer, AtomicLong> response : endpoint.responses.entrySet()) {
+                generator.writeNumberField(response.getKey().toString(), response.getValue().get());
+            }
+            generator.writeEndObject();
+            generator.writeEndObject();
+        }
+        generator.writeEndObject();
+
+        decoding.writeJson(generator, "decoding");
+        accumulatorLockWaits.writeJson(generator, "accumulatorLockWaits");
+
+        generator.writeArrayFieldStart("errors");
+        ErrorAccumulator errors = this.errors;
+        if (errors != null) {
+            for (Map.Entry<ErrorAccumulator.Kind, Long> error : errors.getCounts().entrySet()) {
+                generator.writeStartObject();
+                generator.writeStringField("endpoint", error.getKey().endpoint);
+                generator.writeNumberField("code", error.getKey().code);
+                generator.writeStringField("problemType", error.getKey().problemType);
+                generator.writeNumberField("count", error.getValue());
+                generator.writeEndObject();
+            }
+        }
+        generator.writeEndArray();
+
+        generator.writeObjectFieldStart("gauges");
+        for (Map.Entry<String, IntSupplier> gauge : gauges.entrySet()) {
+            generator.writeNumberField(gauge.getKey(), gauge.getValue().getAsInt());
+        }
+        generator.writeEndObject();
+        generator.writeEndObject();
+    }
+
+    private Endpoint endpoint(String name) {
+        return endpoints.computeIfAbsent(name, n -> new Endpoint());
+    }
+
+    private static void header(PrintWriter out, String name, String type, String help) {
+        out.printf("# HELP %s%s %s%n", PREFIX, name, help);
+        out.printf("# TYPE %s%s %s%n", PREFIX, name, type);
+    }
+
+    private static String seconds(long nanos) {
+        return Double.toString(nanos / 1e9);
+    }
+
+    private static final class Endpoint {
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong bytesReceived = new AtomicLong();
+        private final ConcurrentMap<Integer, AtomicLong> responses = new ConcurrentSkipListMap<>();
+        private final DurationHistogram latency = new DurationHistogram();
+
+        private void record(int statusCode, long nanos) {
+            requests.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            responses.computeIfAbsent(statusCode, code -> new AtomicLong()).incrementAndGet();
+            synchronized (latency) {
+                latency.add(TimeUnit.NANOSECONDS.toMillis(nanos));
+            }
+        }
+
+        private DurationHistogram latencySnapshot() {
+            DurationHistogram snapshot = new DurationHistogram();
+            synchronized (latency) {
+                snapshot.merge(latency);
+            }
+            return snapshot;
+        }
+    }
+
+    /**
+     * The number, total and maximum of durations too short and too frequent to be worth a histogram.
+     */
+    private static final class Timer {
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalNanos = new AtomicLong();
+        private final AtomicLong maxNanos = new AtomicLong();
+
+        private void record(long nanos) {
+            count.incrementAndGet();
+            totalNanos.addAndGet(nanos);
+            maxNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        private void writePrometheus(PrintWriter out, String name, String help) {
+            header(out, name, "summary", help);
+            out.printf("%s%s_sum %s%n", PREFIX, name, seconds(totalNanos.get()));
+            out.printf("%s%s_count %d%n", PREFIX, name, count.get());
+            header(out, name + "_max", "gauge", "Longest " + help.substring(0, 1).toLowerCase() + help.substring(1));
+            out.printf("%s%s_max %s%n", PREFIX, name, seconds(maxNanos.get()));
+        }
+
+        private void writeJson(JsonGenerator generator, String fieldName) throws IOException {
+            generator.writeObjectFieldStart(fieldName);
+            generator.writeNumberField("count", count.get());
+            generator.writeNumberField("totalMillis", TimeUnit.NANOSECONDS.toMillis(totalNanos.get()));
+            generator.writeNumberField("maxMillis", TimeUnit.NANOSECONDS.toMillis(maxNanos.get()));
+            generator.writeEndObject();
+        }
+    }
+}
@@ -0,0 +1,206 @@
+package com.gradle.enterprise.summary.processor;
+
+import com.gradle.enterprise.api.async.GradleEnterpriseApi;
+import com.gradle.enterprise.api.client.ApiClient;
+import com.gradle.enterprise.api.client.ApiException;
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.BuildQuery;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+import com.gradle.enterprise.summary.accumulator.SummarySink;
+import com.gradle.enterprise.summary.metrics.ErrorAccumulator;
+import com.gradle.enterprise.summary.metrics.MetricsAccumulator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Processes builds with the non-blocking API client.
+ * Each build is a chain of futures, so the number of builds in flight is bounded by permits rather than by threads.
+ */
+public final class AsyncBuildProcessor implements BuildProcessor {
+    private final Logger logger = LoggerFactory.getLogger(AsyncBuildProcessor.class);
+    private final GradleEnterpriseApi api;
+    private final String projectName;
+    private final SummarySink summarySink;
+    private final MetricsAccumulator metricsAccumulator;
+    private final ErrorAccumulator errorAccumulator;
+    private final int maxBuildsInFlight;
+    private final Semaphore buildsInFlight;
+    private final boolean concurrentRequests;
+    private final RetryQueue retryQueue;
+
+    /**
+     * @param concurrentRequests whether to request the build cache performance together with the attributes instead of after them
+     */
+    public AsyncBuildProcessor(ApiClient apiClient,
+                               int maxBuildsInFlight,
+                               String projectName,
+                               SummarySink summarySink,
+                               MetricsAccumulator metricsAccumulator,
+                               ErrorAccumulator errorAccumulator,
+                               boolean concurrentRequests) {
+        this(apiClient, maxBuildsInFlight, projectName, summarySink, metricsAccumulator, errorAccumulator, concurrentRequests, null);
+    }
+
+    /**
+     * @param retryQueue the queue to defer builds that failed with a transient error to, or {@code null} to not retry them
+     */
+    public AsyncBuildProcessor(ApiClient apiClient,
+                               int maxBuildsInFlight,
+                               String projectName,
+                               SummarySink summarySink,
+                               MetricsAccumulator metricsAccumulator,
+                               ErrorAccumulator errorAccumulator,
+                               boolean concurrentRequests,
+                               RetryQueue retryQueue) {
+        this.api = new GradleEnterpriseApi(apiClient);
+        this.maxBuildsInFlight = maxBuildsInFlight;
+        this.buildsInFlight = new Semaphore(maxBuildsInFlight);
+        this.projectName = projectName;
+        this.summarySink = summarySink;
+        this.metricsAccumulator = metricsAccumulator;
+        this.errorAccumulator = errorAccumulator;
+        this.concurrentRequests = concurrentRequests;
+        this.retryQueue = retryQueue;
+    }
+
+    public void processBuilds(Iterable<Build> builds) {
+        System.out.println("Processing builds ...");
+        try {
+            for (Build build : builds) {
+                process(build);
+            }
+
+            // Once all permits are back, every build has completed
+            buildsInFlight.acquire(maxBuildsInFlight);
+            buildsInFlight.release(maxBuildsInFlight);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        System.out.println("Done processing builds.");
+    }
+
+    /**
+     * Starts processing the build, blocking only while the maximum number of builds is already in flight.
+     */
+    @Override
+    public void process(Build build) {
+        try {
+            buildsInFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        CompletableFuture<Void> processing;
+        try {
+            if (build.getBuildToolType().equalsIgnoreCase("gradle")) {
+                processing = processGradleBuild(build);
+            } else if (build.getBuildToolType().equalsIgnoreCase("maven")) {
+                processing = processMavenBuild(build);
+            } else {
+                processing = CompletableFuture.completedFuture(null);
+            }
+        } catch (Exception e) {
+            // Fails like the requests do, so that the permit is released and the build is retried
+            processing = CompletableFuture.failedFuture(e);
+        }
+
+        processing.whenComplete((result, failure) -> {
+            try {
+                if (failure == null) {
+                    metricsAccumulator.markBuildProcessedSuccessfully(build.getAvailableAt());
+                    if (retryQueue != null) {
+                        retryQueue.markSucceeded(build);
+                    }
+                } else {
+                    handleFailure(build, unwrap(failure));
+                }
+            } finally {
+                buildsInFlight.release();
+            }
+        });
+    }
+
+    private CompletableFuture<Void> processGradleBuild(Build build) {
+        ApiCall<GradleBuildCachePerformance> modelCall = () -> api.getGradleBuildCachePerformance(build.getId(), new BuildQuery());
+        var speculativeModel = concurrentRequests ? call(modelCall) : null;
+
+        return call(() -> api.getGradleAttributes(build.getId(), new BuildQuery()))
+            .whenComplete((attributes, e) -> {
+                if (e != null) {
+                    cancel(speculativeModel);
+                }
+            })
+            .thenCompose(attributes -> {
+                if (projectName == null || projectName.equals(attributes.getRootProjectName())) {
+                    return (speculativeModel != null ? speculativeModel : call(modelCall))
+                        .thenAccept(model -> summarySink.addGradleBuild(build, attributes, model));
+                }
+                cancel(speculativeModel);
+                return CompletableFuture.completedFuture(null);
+            });
+    }
+
+    private CompletableFuture<Void> processMavenBuild(Build build) {
+        ApiCall<MavenBuildCachePerformance> modelCall = () -> api.getMavenBuildCachePerformance(build.getId(), new BuildQuery());
+        var speculativeModel = concurrentRequests ? call(modelCall) : null;
+
+        return call(() -> api.getMavenAttributes(build.getId(), new BuildQuery()))
+            .whenComplete((attributes, e) -> {
+                if (e != null) {
+                    cancel(speculativeModel);
+                }
+            })
+            .thenCompose(attributes -> {
+                if (projectName == null || projectName.equals(attributes.getTopLevelProjectName())) {
+                    return (speculativeModel != null ? speculativeModel : call(modelCall))
+                        .thenAccept(model -> summarySink.addMavenBuild(build, attributes, model));
+                }
+                cancel(speculativeModel);
+                return CompletableFuture.completedFuture(null);
+            });
+    }
+
+    /**
+     * Drops the result of a request that is no longer needed.
+     * Unlike the blocking processor this cannot abort the HTTP exchange, as the generated client does not propagate cancellation.
+     */
+    private static void cancel(CompletableFuture<?> request) {
+        if (request != null) {
+            request.cancel(false);
+        }
+    }
+
+    private void handleFailure(Build build, Throwable e) {
+        logger.error("Error processing {}", build.getId(), e);
+        metricsAccumulator.markBuildProcessedWithError(build.getAvailableAt());
+        if (e instanceof ApiException && !e.getMessage().contains("GOAWAY")) {
+            errorAccumulator.addError(build.getId(), (ApiException) e);
+        }
+        if (retryQueue != null) {
+            retryQueue.retry(build, e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable failure) {
+        return failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+    }
+
+    private static <T> CompletableFuture<T> call(ApiCall<T> call) {
+        try {
+            return call.execute();
+        } catch (ApiException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ApiCall<T> {
+        CompletableFuture<T> execute() throws ApiException;
+    }
+}
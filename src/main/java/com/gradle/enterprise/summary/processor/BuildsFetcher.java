@@ -8,6 +8,7 @@ import com.gradle.enterprise.api.model.BuildsQuery;
 import com.gradle.enterprise.summary.ApiProblemParser;
 import com.gradle.enterprise.summary.InstantUtils;
 import com.gradle.enterprise.summary.metrics.ErrorAccumulator;
+import com.gradle.enterprise.summary.metrics.MetricsAccumulator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -16,8 +17,8 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static com.gradle.enterprise.summary.metrics.MetricsAccumulator.FORMATTER;
 
@@ -26,55 +27,128 @@ public final class BuildsFetcher {
     private static final Integer MAX_BUILDS = Integer.MAX_VALUE;
     private final GradleEnterpriseApi api;
     private final ErrorAccumulator errorAccumulator;
+    private final Predicate<Build> skipBuild;
+    private volatile Build lastFetchedBuild;
 
     public BuildsFetcher(GradleEnterpriseApi api, ErrorAccumulator errorAccumulator) {
+        this(api, errorAccumulator, build -> false);
+    }
+
+    /**
+     * @param skipBuild the builds that are fetched but not handed to the processors
+     */
+    public BuildsFetcher(GradleEnterpriseApi api, ErrorAccumulator errorAccumulator, Predicate<Build> skipBuild) {
         this.api = api;
         this.errorAccumulator = errorAccumulator;
+        this.skipBuild = skipBuild;
     }
 
-    public BlockingQueue<Build> fetchBuilds(Instant since, Instant endTime) {
+    public static Consumer<BuildsQuery> since(Instant since) {
+        return q -> q.since(since.toEpochMilli());
+    }
+
+    public static Consumer<BuildsQuery> sinceBuild(String buildId) {
+        return q -> q.sinceBuild(buildId);
+    }
+
+    public BlockingQueue<Build> fetchBuilds(Consumer<BuildsQuery> start, Instant endTime) {
         final BlockingQueue<Build> buildsQueue = new LinkedBlockingQueue<>(MAX_BUILDS);
 
         System.out.println("Fetching builds ...");
-        Consumer<BuildsQuery> sinceApplicator = q -> q.since(since.toEpochMilli());
+        int fetched = fetchBuilds(start, endTime, buildsQueue::add);
+        if (fetched < 0) {
+            System.err.printf("Something went wrong while fetching builds. Will process the %d builds already fetched.\n", buildsQueue.size());
+        }
+        System.out.println("Done fetching builds.");
+
+        return buildsQueue;
+    }
+
+    /**
+     * Fetches the builds page by page and hands each of them to the queue as soon as the page arrives.
+     * Blocks while the queue is full, so fetching never runs ahead of processing by more than the queue capacity.
+     * The queue is closed when fetching is done, also when it failed.
+     */
+    public void streamBuilds(Consumer<BuildsQuery> start, Instant endTime, StreamingBuildsQueue buildsQueue, MetricsAccumulator metricsAccumulator) {
+        System.out.println("Fetching and processing builds ...");
+        try {
+            int fetched = fetchBuilds(start, endTime, build -> {
+                buildsQueue.put(build);
+                metricsAccumulator.markBuildQueued();
+            });
+            if (fetched < 0) {
+                System.err.println("Something went wrong while fetching builds. Will process the builds already fetched.");
+            }
+        } finally {
+            buildsQueue.close();
+        }
+        System.out.println("Done fetching builds.");
+    }
+
+    /**
+     * @return the number of builds fetched or -1 if fetching stopped because of an error
+     */
+    private int fetchBuilds(Consumer<BuildsQuery> start, Instant endTime, BuildSink sink) {
+        Consumer<BuildsQuery> sinceApplicator = start;
+        int fetched = 0;
+        int skipped = 0;
 
         try {
-            AtomicBoolean finished = new AtomicBoolean(false);
-            while (!finished.get()) {
+            boolean finished = false;
+            while (!finished) {
                 List<Build> builds = requestBuilds(sinceApplicator);
 
-                if (!builds.isEmpty()) {
-                    builds.forEach(build -> {
-                        if (buildsQueue.size() >= MAX_BUILDS) {
-                            finished.set(true);
-                            System.out.printf("Fetched the maximum number of %d supported builds.", MAX_BUILDS);
-                        } else {
-                            buildsQueue.add(build);
-
-                            if (buildsQueue.size() % 250 == 0) {
-                                System.out.printf("Fetching | %5d builds queued | Currently fetching: %s \n",
-                                    buildsQueue.size(),
-                                    FORMATTER.format(InstantUtils.fromUTC(build.getAvailableAt()))
-                                );
-                            }
-                        }
+                if (builds.isEmpty()) {
+                    break;
+                }
 
-                        if (InstantUtils.fromUTC(build.getAvailableAt()).isAfter(endTime)) {
-                            finished.set(true);
+                for (Build build : builds) {
+                    if (fetched >= MAX_BUILDS) {
+                        finished = true;
+                        System.out.printf("Fetched the maximum number of %d supported builds.", MAX_BUILDS);
+                        break;
+                    }
+
+                    if (skipBuild.test(build)) {
+                        skipped++;
+                    } else {
+                        sink.accept(build);
+                        fetched++;
+
+                        if (fetched % 250 == 0) {
+                            System.out.printf("Fetching | %5d builds queued | Currently fetching: %s \n",
+                                fetched,
+                                FORMATTER.format(InstantUtils.fromUTC(build.getAvailableAt()))
+                            );
                         }
-                    });
-                    sinceApplicator = q -> q.sinceBuild(builds.get(builds.size() - 1).getId());
-                } else {
-                    finished.set(true);
+                    }
+                    lastFetchedBuild = build;
+
+                    if (InstantUtils.fromUTC(build.getAvailableAt()).isAfter(endTime)) {
+                        finished = true;
+                    }
                 }
+                sinceApplicator = q -> q.sinceBuild(builds.get(builds.size() - 1).getId());
             }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
         } catch (Exception ex) {
             logger.error("Something went wrong while fetching builds.", ex);
-            System.err.printf("Something went wrong while fetching builds. Will process the %d builds already fetched.\n", buildsQueue.size());
+            return -1;
+        } finally {
+            if (skipped > 0) {
+                System.out.printf("Fetching | Skipped %d builds that were already processed\n", skipped);
+            }
         }
-        System.out.println("Done fetching builds.");
 
-        return buildsQueue;
+        return fetched;
+    }
+
+    /**
+     * @return the last build handed to the processors, or {@code null} if no build was fetched
+     */
+    public Build getLastFetchedBuild() {
+        return lastFetchedBuild;
     }
 
     private List<Build> requestBuilds(Consumer<BuildsQuery> sinceApplicator) throws ApiException {
@@ -89,7 +163,7 @@ public final class BuildsFetcher {
             try {
                 return api.getBuilds(query);
             } catch (ApiException e) {
-                errorAccumulator.addError(new ErrorAccumulator.Error("FETCHING_BUILDS_" + InstantUtils.nowUTC(), e.getCode(), e.getResponseBody(), e.getMessage()));
+                errorAccumulator.addError("FETCHING_BUILDS_" + InstantUtils.nowUTC(), e);
 
                 if (retries >= 2 || e.getCode() == 500) {
                     throw e;
@@ -109,4 +183,9 @@ public final class BuildsFetcher {
             retries++;
         }
     }
+
+    @FunctionalInterface
+    private interface BuildSink {
+        void accept(Build build) throws InterruptedException;
+    }
 }
@@ -4,24 +4,48 @@ import com.gradle.enterprise.api.model.Build;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
 public class ConcurrentBuildProcessor {
     private Logger logger = LoggerFactory.getLogger(ConcurrentBuildProcessor.class);
-    private final Queue<Build> buildsQueue;
-    private final ThreadPoolExecutor executor;
+    private final Iterable<Build> builds;
+    private final ExecutorService executor;
+    private final int maxBuildsInFlight;
+    private final Semaphore buildsInFlight;
 
     private static final int QUEUE_CAPACITY = 2056;
 
     private final BuildProcessor buildProcessor;
 
-    public ConcurrentBuildProcessor(int numberOfThreads, BuildProcessor buildProcessor, Queue<Build> buildsQueue) {
+    public ConcurrentBuildProcessor(int numberOfThreads, BuildProcessor buildProcessor, Iterable<Build> builds) {
+        this(ExecutorType.PLATFORM, numberOfThreads, buildProcessor, builds);
+    }
+
+    /**
+     * @param concurrency the number of platform threads, or the number of virtual threads that may run at the same time
+     */
+    public ConcurrentBuildProcessor(ExecutorType executorType, int concurrency, BuildProcessor buildProcessor, Iterable<Build> builds) {
         this.buildProcessor = buildProcessor;
-        this.buildsQueue = buildsQueue;
-        this.executor = new ThreadPoolExecutor(numberOfThreads, numberOfThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(QUEUE_CAPACITY));
+        this.builds = builds;
+        switch (executorType) {
+            case PLATFORM:
+                this.executor = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+                this.maxBuildsInFlight = concurrency + QUEUE_CAPACITY;
+                break;
+            case VIRTUAL:
+                this.executor = Executors.newVirtualThreadPerTaskExecutor();
+                this.maxBuildsInFlight = concurrency;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported executor type " + executorType);
+        }
+        this.buildsInFlight = new Semaphore(maxBuildsInFlight);
     }
 
     public void processBuilds() {
@@ -41,11 +65,20 @@ public class ConcurrentBuildProcessor {
     }
 
     private void process() throws InterruptedException {
-        for (Build build : buildsQueue) {
-            while (executor.getQueue().size() >= QUEUE_CAPACITY - 1) {
-                Thread.sleep(100l);
+        for (Build build : builds) {
+            buildsInFlight.acquire();
+            try {
+                executor.execute(() -> {
+                    try {
+                        buildProcessor.process(build);
+                    } finally {
+                        buildsInFlight.release();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                buildsInFlight.release();
+                throw e;
             }
-            executor.execute(() -> buildProcessor.process(build));
         }
 
         executor.shutdown();
@@ -53,7 +86,7 @@ public class ConcurrentBuildProcessor {
         int waiting = 0;
         while (!executor.awaitTermination(10, TimeUnit.SECONDS) && waiting < 600) {
             waiting += 10;
-            System.out.printf("Processing | %4s builds left to process\n", (executor.getActiveCount() + (executor.getQueue().size())));
+            System.out.printf("Processing | %4s builds left to process\n", maxBuildsInFlight - buildsInFlight.availablePermits());
         }
     }
 }
@@ -0,0 +1,16 @@
+package com.gradle.enterprise.summary.processor;
+
+public enum ExecutorType {
+    /**
+     * A fixed pool of platform threads, each making blocking API calls.
+     */
+    PLATFORM,
+    /**
+     * A virtual thread per build, each making blocking API calls.
+     */
+    VIRTUAL,
+    /**
+     * Non-blocking API calls chained as futures, with a bounded number of builds in flight.
+     */
+    ASYNC
+}
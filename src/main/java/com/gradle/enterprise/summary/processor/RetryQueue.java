@@ -0,0 +1,169 @@
+package com.gradle.enterprise.summary.processor;
+
+import com.gradle.enterprise.api.client.ApiException;
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.summary.metrics.MetricsAccumulator;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Collects the builds whose processing failed with a transient error, to process them again after the main pass
+ * so that they do not hold up the healthy builds.
+ * <p>
+ * Each build is retried after an exponential backoff with jitter, at most {@link #MAX_RETRIES} times,
+ * and no more retries are made in total than the retry budget allows.
+ */
+public final class RetryQueue {
+    private static final int MAX_RETRIES = 3;
+    private static final Duration BASE_DELAY = Duration.ofSeconds(2);
+    private static final Duration MAX_DELAY = Duration.ofMinutes(1);
+
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    private final Map<String, Integer> failures = new ConcurrentHashMap<>();
+    private final Set<String> retrying = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger budget;
+    private final AtomicInteger recovered = new AtomicInteger();
+
+    /**
+     * @param budget the maximum number of retries over all builds
+     */
+    public RetryQueue(int budget) {
+        this.budget = new AtomicInteger(budget);
+    }
+
+    /**
+     * Schedules the build to be processed again, if the error is transient and retries are left.
+     *
+     * @return whether the build will be retried
+     */
+    public boolean retry(Build build, Throwable failure) {
+        int attempt = failures.merge(build.getId(), 1, Integer::sum);
+        try {
+            if (!isTransient(failure) || attempt > MAX_RETRIES || budget.getAndDecrement() <= 0) {
+                return false;
+            }
+            retries.add(new Retry(build, delayFor(attempt)));
+            return true;
+        } finally {
+            // Only after the retry was added, so that iteration does not end in between
+            retrying.remove(build.getId());
+        }
+    }
+
+    public void markSucceeded(Build build) {
+        if (failures.containsKey(build.getId())) {
+            recovered.incrementAndGet();
+        }
+        retrying.remove(build.getId());
+    }
+
+    /**
+     * @return the builds to retry, each once its backoff has passed; iteration ends once no build is left to retry
+     * and none of the retried builds is still being processed
+     */
+    public Iterable<Build> builds(MetricsAccumulator metricsAccumulator) {
+        return () -> new Iterator<>() {
+            private Build next;
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (next == null) {
+                        Retry retry = retries.poll(100, TimeUnit.MILLISECONDS);
+                        if (retry != null) {
+                            next = retry.build;
+                            retrying.add(next.getId());
+                            metricsAccumulator.markBuildQueued();
+                        } else if (retries.isEmpty() && retrying.isEmpty()) {
+                            return false;
+                        }
+                    }
+                    return true;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            @Override
+            public Build next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Build build = next;
+                next = null;
+                return build;
+            }
+        };
+    }
+
+    public boolean isEmpty() {
+        return retries.isEmpty();
+    }
+
+    /**
+     * @return the number of builds waiting for their retry
+     */
+    public int size() {
+        return retries.size();
+    }
+
+    public void printStatistics() {
+        if (failures.isEmpty()) {
+            return;
+        }
+        System.out.printf("Retries | %d builds failed | %d recovered by retrying | %d permanently lost\n",
+            failures.size(), recovered.get(), failures.size() - recovered.get());
+    }
+
+    /**
+     * Connection failures, timeouts, throttling and server errors are worth retrying, other client errors are not.
+     */
+    private static boolean isTransient(Throwable failure) {
+        if (failure instanceof IOException) {
+            return true;
+        }
+        if (failure instanceof ApiException) {
+            int code = ((ApiException) failure).getCode();
+            return code == 0 || code == 408 || code == 429 || code >= 500;
+        }
+        return false;
+    }
+
+    private static long delayFor(int attempt) {
+        long exponential = Math.min(MAX_DELAY.toMillis(), BASE_DELAY.toMillis() << (attempt - 1));
+        // Half of the delay is fixed, the other half random, so that builds failing together are not retried together
+        return exponential / 2 + ThreadLocalRandom.current().nextLong(exponential / 2 + 1);
+    }
+
+    private static final class Retry implements Delayed {
+        private final Build build;
+        private final long dueAtNanos;
+
+        private Retry(Build build, long delayMillis) {
+            this.build = build;
+            this.dueAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis);
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
+    }
+}
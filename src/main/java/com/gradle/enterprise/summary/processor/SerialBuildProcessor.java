@@ -7,8 +7,7 @@ import com.gradle.enterprise.api.model.BuildAttributesValue;
 import com.gradle.enterprise.api.model.BuildQuery;
 import com.gradle.enterprise.summary.ApiProblemParser;
 import com.gradle.enterprise.summary.InstantUtils;
-import com.gradle.enterprise.summary.accumulator.gradle.GradleSummaryAccumulator;
-import com.gradle.enterprise.summary.accumulator.maven.MavenSummaryAccumulator;
+import com.gradle.enterprise.summary.accumulator.SummarySink;
 import com.gradle.enterprise.summary.metrics.ErrorAccumulator;
 import com.gradle.enterprise.summary.metrics.MetricsAccumulator;
 import org.slf4j.Logger;
@@ -18,31 +17,65 @@ import java.math.BigDecimal;
 import java.net.URI;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-public final class SerialBuildProcessor implements BuildProcessor {
+public final class SerialBuildProcessor implements BuildProcessor, AutoCloseable {
     private final Logger logger = LoggerFactory.getLogger(SerialBuildProcessor.class);
     private final GradleEnterpriseApi api;
     private final String serverUrl;
     private final String projectName;
-    private final GradleSummaryAccumulator gradleSummaryAccumulator;
-    private final MavenSummaryAccumulator mavenSummaryAccumulator;
+    private final SummarySink summarySink;
     private final MetricsAccumulator metricsAccumulator;
     private final ErrorAccumulator errorAccumulator;
+    private final ExecutorService requestExecutor;
+    private final RetryQueue retryQueue;
 
     public SerialBuildProcessor(GradleEnterpriseApi api,
                                 String serverUrl,
                                 String projectName,
-                                GradleSummaryAccumulator summaryAccumulator,
-                                MavenSummaryAccumulator mavenSummaryAccumulator,
+                                SummarySink summarySink,
                                 MetricsAccumulator metricsAccumulator,
                                 ErrorAccumulator errorAccumulator) {
+        this(api, serverUrl, projectName, summarySink, metricsAccumulator, errorAccumulator, false);
+    }
+
+    /**
+     * @param concurrentRequests whether to request the build cache performance while the attributes are being requested,
+     * instead of after. When filtering by project, the cache performance request is cancelled for builds of other projects.
+     */
+    public SerialBuildProcessor(GradleEnterpriseApi api,
+                                String serverUrl,
+                                String projectName,
+                                SummarySink summarySink,
+                                MetricsAccumulator metricsAccumulator,
+                                ErrorAccumulator errorAccumulator,
+                                boolean concurrentRequests) {
+        this(api, serverUrl, projectName, summarySink, metricsAccumulator, errorAccumulator, concurrentRequests, null);
+    }
+
+    /**
+     * @param retryQueue the queue to defer builds that failed with a transient error to, or {@code null} to not retry them
+     */
+    public SerialBuildProcessor(GradleEnterpriseApi api,
+                                String serverUrl,
+                                String projectName,
+                                SummarySink summarySink,
+                                MetricsAccumulator metricsAccumulator,
+                                ErrorAccumulator errorAccumulator,
+                                boolean concurrentRequests,
+                                RetryQueue retryQueue) {
         this.api = api;
         this.serverUrl = serverUrl;
         this.projectName = projectName;
-        this.gradleSummaryAccumulator = summaryAccumulator;
-        this.mavenSummaryAccumulator = mavenSummaryAccumulator;
+        this.summarySink = summarySink;
         this.metricsAccumulator = metricsAccumulator;
         this.errorAccumulator = errorAccumulator;
+        this.requestExecutor = concurrentRequests ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        this.retryQueue = retryQueue;
     }
 
     @Override
@@ -55,25 +88,35 @@ public final class SerialBuildProcessor implements BuildProcessor {
             }
 
             metricsAccumulator.markBuildProcessedSuccessfully(build.getAvailableAt());
+            if (retryQueue != null) {
+                retryQueue.markSucceeded(build);
+            }
         } catch (Exception e) {
             logger.error("Error processing {}", build.getId(), e);
             metricsAccumulator.markBuildProcessedWithError(build.getAvailableAt());
             if (e instanceof ApiException && !e.getMessage().contains("GOAWAY")) {
-                errorAccumulator.addError(new ErrorAccumulator.Error(build.getId(), ((ApiException) e).getCode(), ((ApiException) e).getResponseBody(), e.getMessage()));
+                errorAccumulator.addError(build.getId(), (ApiException) e);
+            }
+            if (retryQueue != null) {
+                retryQueue.retry(build, e);
             }
 //            reportError(build, e);
         }
     }
 
     private void processMavenBuild(Build build) throws ApiException {
-        var attributes = api.getMavenAttributes(build.getId(), new BuildQuery());
+        var speculativeModel = startConcurrently(() -> api.getMavenBuildCachePerformance(build.getId(), new BuildQuery()));
+        try {
+            var attributes = api.getMavenAttributes(build.getId(), new BuildQuery());
 
 //        if (!isMasterOrRelease(attributes.getValues())) {
 //            return;
 //        }
 
-        if (projectName == null || projectName.equals(attributes.getTopLevelProjectName())) {
-            var model = api.getMavenBuildCachePerformance(build.getId(), new BuildQuery());
+            if (projectName == null || projectName.equals(attributes.getTopLevelProjectName())) {
+                var model = speculativeModel != null
+                    ? await(speculativeModel)
+                    : api.getMavenBuildCachePerformance(build.getId(), new BuildQuery());
 //            reportBuild(
 //                build,
 //                computeCacheHitPercentage(model),
@@ -82,20 +125,27 @@ public final class SerialBuildProcessor implements BuildProcessor {
 //                attributes.getBuildDuration(),
 //                attributes.getEnvironment().getUsername()
 //            );
-            mavenSummaryAccumulator.addBuild(build, attributes, model);
+                summarySink.addMavenBuild(build, attributes, model);
+            }
+        } finally {
+            cancel(speculativeModel);
         }
     }
 
     private void processGradleBuild(Build build) throws ApiException {
-        var attributes = api.getGradleAttributes(build.getId(), new BuildQuery());
+        var speculativeModel = startConcurrently(() -> api.getGradleBuildCachePerformance(build.getId(), new BuildQuery()));
+        try {
+            var attributes = api.getGradleAttributes(build.getId(), new BuildQuery());
 
 //        if (!isMasterOrRelease(attributes.getValues())) {
 //            return;
 //        }
 
 
-        if (projectName == null || projectName.equals(attributes.getRootProjectName())) {
-            var model = api.getGradleBuildCachePerformance(build.getId(), new BuildQuery());
+            if (projectName == null || projectName.equals(attributes.getRootProjectName())) {
+                var model = speculativeModel != null
+                    ? await(speculativeModel)
+                    : api.getGradleBuildCachePerformance(build.getId(), new BuildQuery());
 //            reportBuild(
 //                build,
 //                computeCacheHitPercentage(model),
@@ -104,7 +154,48 @@ public final class SerialBuildProcessor implements BuildProcessor {
 //                attributes.getBuildDuration(),
 //                attributes.getEnvironment().getUsername()
 //            );
-            gradleSummaryAccumulator.addBuild(build, attributes, model);
+                summarySink.addGradleBuild(build, attributes, model);
+            }
+        } finally {
+            cancel(speculativeModel);
+        }
+    }
+
+    /**
+     * Stops the threads of the concurrent requests, once all builds have been processed.
+     */
+    @Override
+    public void close() {
+        if (requestExecutor != null) {
+            requestExecutor.shutdownNow();
+        }
+    }
+
+    private <T> Future<T> startConcurrently(Callable<T> request) {
+        return requestExecutor != null ? requestExecutor.submit(request) : null;
+    }
+
+    private static <T> T await(Future<T> request) throws ApiException {
+        try {
+            return request.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ApiException) {
+                throw (ApiException) e.getCause();
+            }
+            throw new ApiException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiException(e);
+        }
+    }
+
+    /**
+     * Interrupts a request that is no longer needed, which aborts the underlying HTTP exchange.
+     * Does nothing if the request has already completed.
+     */
+    private static void cancel(Future<?> request) {
+        if (request != null) {
+            request.cancel(true);
         }
     }
 
@@ -0,0 +1,117 @@
+package com.gradle.enterprise.summary.processor;
+
+import com.gradle.enterprise.api.model.Build;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A bounded hand-off between the {@link BuildsFetcher} and the build processors.
+ * The fetcher blocks when the queue is full, the processors block when it is empty,
+ * and iteration ends once the fetcher has {@link #close() closed} the queue and all builds were taken.
+ * <p>
+ * When the processors stop early the queue is {@link #cancel() cancelled}, so that the fetcher does not wait for room forever.
+ */
+public final class StreamingBuildsQueue implements Iterable<Build> {
+    private static final Build END_OF_BUILDS = new Build();
+    private static final long OFFER_TIMEOUT_MILLIS = 100;
+
+    private final BlockingQueue<Build> queue;
+    private volatile boolean cancelled = false;
+
+    public StreamingBuildsQueue(int capacity) {
+        this.queue = new ArrayBlockingQueue<>(capacity);
+    }
+
+    /**
+     * @throws InterruptedException if the thread was interrupted or the queue was cancelled while waiting for room
+     */
+    public void put(Build build) throws InterruptedException {
+        while (!queue.offer(build, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+            if (cancelled) {
+                throw new InterruptedException("The builds queue was cancelled");
+            }
+        }
+    }
+
+    /**
+     * Ends the iteration after the builds already queued, also when the calling thread was interrupted.
+     */
+    public void close() {
+        boolean interrupted = Thread.interrupted();
+        while (true) {
+            try {
+                if (queue.offer(END_OF_BUILDS, OFFER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                    break;
+                }
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+            if (cancelled) {
+                // Nobody takes the builds anymore, make room for the marker
+                queue.clear();
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Drops the queued builds and ends the iteration, and makes the fetcher stop waiting for room.
+     */
+    public void cancel() {
+        cancelled = true;
+        queue.clear();
+        queue.offer(END_OF_BUILDS);
+    }
+
+    public int size() {
+        return queue.size();
+    }
+
+    @Override
+    public Iterator<Build> iterator() {
+        return new Iterator<>() {
+            private Build next;
+            private boolean done;
+
+            @Override
+            public boolean hasNext() {
+                if (done) {
+                    return false;
+                }
+                if (next == null) {
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        done = true;
+                        return false;
+                    }
+                }
+                if (next == END_OF_BUILDS) {
+                    // Leave the marker in place so that any other consumer stops as well
+                    queue.offer(END_OF_BUILDS);
+                    next = null;
+                    done = true;
+                    return false;
+                }
+                return true;
+            }
+
+            @Override
+            public Build next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Build build = next;
+                next = null;
+                return build;
+            }
+        };
+    }
+}
@@ -0,0 +1,183 @@
+package com.gradle.enterprise.summary.resume;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * An append-only file of the ids of the builds that were added to the summaries, one id per line.
+ * <p>
+ * Appending only hands the id to a background thread, which writes the ids in batches and forces them to disk
+ * at most once per sync interval, so the build processors never wait for the disk.
+ */
+final class ProcessedBuildsJournal implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ProcessedBuildsJournal.class);
+    private static final String END_OF_JOURNAL = "";
+
+    private final FileChannel channel;
+    private final long syncIntervalNanos;
+    private final BlockingQueue<String> pending = new LinkedBlockingQueue<>();
+    private final AtomicLong appended;
+    private final Thread writerThread;
+
+    private final Object syncLock = new Object();
+    private long written;
+    private long synced;
+    private boolean syncRequested;
+    private IOException failure;
+
+    ProcessedBuildsJournal(Path file, long entries, Duration syncInterval) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        this.syncIntervalNanos = syncInterval.toNanos();
+        this.appended = new AtomicLong(entries);
+        this.written = entries;
+        this.synced = entries;
+        this.writerThread = new Thread(this::writeEntries, "journal-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Reads the complete entries of a journal, ignoring a last line that was only partially written.
+     */
+    static List<String> read(Path file) throws IOException {
+        List<String> entries = new ArrayList<>();
+        if (!Files.exists(file)) {
+            return entries;
+        }
+
+        String content = Files.readString(file, StandardCharsets.UTF_8);
+        int start = 0;
+        int end;
+        while ((end = content.indexOf('\n', start)) >= 0) {
+            entries.add(content.substring(start, end));
+            start = end + 1;
+        }
+        return entries;
+    }
+
+    /**
+     * Replaces the journal with the given entries.
+     */
+    static void rewrite(Path file, List<String> entries) throws IOException {
+        StringBuilder content = new StringBuilder();
+        entries.forEach(entry -> content.append(entry).append('\n'));
+
+        Path tempFile = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+        Files.writeString(tempFile, content, StandardCharsets.UTF_8);
+        Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void append(String buildId) {
+        appended.incrementAndGet();
+        pending.add(buildId);
+    }
+
+    /**
+     * @return the number of entries appended so far, including the ones not written yet
+     */
+    long size() {
+        return appended.get();
+    }
+
+    /**
+     * Blocks until at least the given number of entries has been forced to disk.
+     */
+    void awaitSynced(long entries) throws IOException, InterruptedException {
+        synchronized (syncLock) {
+            syncRequested = true;
+            while (synced < entries && failure == null) {
+                syncLock.wait(100);
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        pending.add(END_OF_JOURNAL);
+        writerThread.join();
+        channel.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void writeEntries() {
+        List<String> batch = new ArrayList<>();
+        long lastSync = System.nanoTime();
+        boolean closed = false;
+
+        try {
+            while (!closed) {
+                String first = pending.poll(Math.max(1, syncIntervalNanos / 4), TimeUnit.NANOSECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    pending.drainTo(batch);
+                }
+                closed = batch.remove(END_OF_JOURNAL);
+
+                if (!batch.isEmpty()) {
+                    write(batch);
+                    batch.clear();
+                }
+
+                boolean syncDue;
+                synchronized (syncLock) {
+                    syncDue = synced < written && (closed || syncRequested || System.nanoTime() - lastSync >= syncIntervalNanos);
+                }
+                if (syncDue) {
+                    long toSync;
+                    synchronized (syncLock) {
+                        toSync = written;
+                    }
+                    channel.force(false);
+                    lastSync = System.nanoTime();
+                    synchronized (syncLock) {
+                        synced = toSync;
+                        syncRequested = false;
+                        syncLock.notifyAll();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            logger.error("Could not write the journal of processed builds.", e);
+            synchronized (syncLock) {
+                failure = e;
+                syncLock.notifyAll();
+            }
+        }
+    }
+
+    private void write(List<String> entries) throws IOException {
+        StringBuilder lines = new StringBuilder();
+        entries.forEach(entry -> lines.append(entry).append('\n'));
+
+        ByteBuffer buffer = ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        synchronized (syncLock) {
+            written += entries.size();
+        }
+    }
+}
@@ -0,0 +1,326 @@
+package com.gradle.enterprise.summary.resume;
+
+import com.gradle.enterprise.api.model.Build;
+import com.gradle.enterprise.api.model.GradleAttributes;
+import com.gradle.enterprise.api.model.GradleBuildCachePerformance;
+import com.gradle.enterprise.api.model.MavenAttributes;
+import com.gradle.enterprise.api.model.MavenBuildCachePerformance;
+import com.gradle.enterprise.summary.accumulator.PooledSummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummaryAccumulators;
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import com.gradle.enterprise.summary.accumulator.SummarySink;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongConsumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Makes a run resumable after it crashed or was interrupted.
+ * <p>
+ * The id of every build added to the summaries is appended to a journal, and the summaries are periodically
+ * written to a checkpoint together with the number of journal entries they include.
+ * A resumed run continues from the last checkpoint: it skips the builds journaled before it and processes
+ * all other builds of the original time window again.
+ * <p>
+ * The checkpoint records the server and the project its builds came from, so that a run is not resumed with the builds of another.
+ */
+public final class ResumableRun implements SummarySink, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(ResumableRun.class);
+    private static final String JOURNAL_FILE = "processed-builds.journal";
+    private static final String CHECKPOINT_FILE = "checkpoint.bin.gz";
+
+    private final Path directory;
+    private final Instant startTime;
+    private final Instant endTime;
+    private final String serverUrl;
+    private final String projectName;
+    private final SummarySettings settings;
+    private final Set<String> processedBuildIds;
+    private final ProcessedBuildsJournal journal;
+
+    // The summaries of the last checkpoint, and the builds added since then, which are merged into them by the next one.
+    // The checkpointed summaries are guarded by their own lock, so that only the checkpoints and the final summaries wait for them
+    private final Object checkpointedLock = new Object();
+    private final SummaryAccumulators checkpointed;
+    private volatile PooledSummaryAccumulators added;
+
+    // Adding builds only takes the read lock, so the processors do not block each other,
+    // a checkpoint only takes the write lock to swap the added builds against an empty pool
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ScheduledExecutorService checkpointScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "checkpoint-writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile LongConsumer lockWaits = nanos -> {
+    };
+
+    private ResumableRun(Path directory, Checkpoint checkpoint, Set<String> processedBuildIds, Duration syncInterval) throws IOException {
+        this.directory = directory;
+        this.startTime = checkpoint.startTime;
+        this.endTime = checkpoint.endTime;
+        this.serverUrl = checkpoint.serverUrl;
+        this.projectName = checkpoint.projectName;
+        this.settings = checkpoint.summaries.getSettings();
+        this.checkpointed = checkpoint.summaries;
+        this.added = new PooledSummaryAccumulators(settings);
+        this.processedBuildIds = processedBuildIds;
+        this.journal = new ProcessedBuildsJournal(directory.resolve(JOURNAL_FILE), checkpoint.journalEntries, syncInterval);
+    }
+
+    /**
+     * Starts a new run in the given directory, discarding the state of any previous run in it.
+     * A resumed run keeps the settings of the run it continues.
+     *
+     * @param serverUrl   the server the builds are fetched from
+     * @param projectName the project the builds are limited to, or {@code null} for all
+     */
+    public static ResumableRun start(Path directory, Instant startTime, Instant endTime, SummarySettings settings, String serverUrl, String projectName, Duration syncInterval) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(JOURNAL_FILE));
+
+        Checkpoint checkpoint = new Checkpoint(startTime, endTime, serverUrl, projectName, 0, new SummaryAccumulators(settings));
+        writeCheckpoint(directory, serialize(checkpoint));
+        return new ResumableRun(directory, checkpoint, Set.of(), syncInterval);
+    }
+
+    /**
+     * Continues the run in the given directory from its last checkpoint.
+     *
+     * @param serverUrl   the server the builds are fetched from, which must be the one of the run
+     * @param projectName the project the builds are limited to, or {@code null} for all, which must be the one of the run
+     */
+    public static ResumableRun resume(Path directory, String serverUrl, String projectName, Duration syncInterval) throws IOException {
+        Path checkpointFile = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(checkpointFile)) {
+            throw new IOException("There is no run to resume in " + directory);
+        }
+
+        Checkpoint checkpoint;
+        try (ObjectInputStream in = new ObjectInputStream(new GZIPInputStream(new BufferedInputStream(Files.newInputStream(checkpointFile))))) {
+            checkpoint = (Checkpoint) in.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Unexpected content in " + checkpointFile, e);
+        }
+        if (!checkpoint.serverUrl.equals(serverUrl) || !Objects.equals(checkpoint.projectName, projectName)) {
+            throw new IOException(String.format("The run in %s fetched the builds of %s for %s, not of %s for %s",
+                directory, checkpoint.serverUrl, describeProject(checkpoint.projectName), serverUrl, describeProject(projectName)));
+        }
+
+        // Builds journaled after the checkpoint are not included in its summaries, they are processed again
+        Path journalFile = directory.resolve(JOURNAL_FILE);
+        List<String> entries = ProcessedBuildsJournal.read(journalFile);
+        if (entries.size() < checkpoint.journalEntries) {
+            throw new IOException("The journal in " + directory + " is missing builds of the last checkpoint");
+        }
+        List<String> included = entries.subList(0, (int) checkpoint.journalEntries);
+        ProcessedBuildsJournal.rewrite(journalFile, included);
+
+        System.out.printf("Resuming the run from its last checkpoint with %d builds processed, %d builds will be processed again.\n",
+            included.size(), entries.size() - included.size());
+
+        return new ResumableRun(directory, checkpoint, new HashSet<>(included), syncInterval);
+    }
+
+    public Instant getStartTime() {
+        return startTime;
+    }
+
+    public Instant getEndTime() {
+        return endTime;
+    }
+
+    public String getServerUrl() {
+        return serverUrl;
+    }
+
+    /**
+     * @return the project the builds are limited to, or {@code null} for all projects
+     */
+    public String getProjectName() {
+        return projectName;
+    }
+
+    /**
+     * @return whether the build is already included in the summaries restored from the checkpoint
+     */
+    public boolean isProcessed(Build build) {
+        return processedBuildIds.contains(build.getId());
+    }
+
+    public void startCheckpoints(Duration interval) {
+        checkpointScheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                logger.error("Could not write a checkpoint to {}.", directory, e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param lockWaits receives the nanoseconds of every wait for the summaries, while a checkpoint is taken
+     *                  or for the lock on one of the pooled summaries
+     */
+    public void recordLockWaits(LongConsumer lockWaits) {
+        this.lockWaits = lockWaits;
+        added.recordLockWaits(lockWaits);
+    }
+
+    @Override
+    public void addGradleBuild(Build build, GradleAttributes attributes, GradleBuildCachePerformance model) {
+        lockForAdding();
+        try {
+            added.addGradleBuild(build, attributes, model);
+            journal.append(build.getId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addMavenBuild(Build build, MavenAttributes attributes, MavenBuildCachePerformance model) {
+        lockForAdding();
+        try {
+            added.addMavenBuild(build, attributes, model);
+            journal.append(build.getId());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public SummaryAccumulators getSummaries() {
+        SummaryAccumulators summaries = new SummaryAccumulators(settings);
+        synchronized (checkpointedLock) {
+            summaries.merge(checkpointed);
+            summaries.merge(added.getSummaries());
+        }
+        return summaries;
+    }
+
+    /**
+     * Writes the summaries to the checkpoint, once the journal entries they include are on disk.
+     */
+    public void checkpoint() throws IOException, InterruptedException {
+        byte[] checkpoint;
+        long journalEntries;
+
+        synchronized (checkpointedLock) {
+            PooledSummaryAccumulators addedSinceCheckpoint;
+            lock.writeLock().lock();
+            try {
+                journalEntries = journal.size();
+                addedSinceCheckpoint = added;
+                added = new PooledSummaryAccumulators(settings);
+                added.recordLockWaits(lockWaits);
+            } finally {
+                lock.writeLock().unlock();
+            }
+
+            // No build is added to the swapped pool anymore, so merging and serializing it does not hold up the processors
+            checkpointed.merge(addedSinceCheckpoint.getSummaries());
+            checkpoint = serialize(new Checkpoint(startTime, endTime, serverUrl, projectName, journalEntries, checkpointed));
+        }
+
+        // A checkpoint must never refer to journal entries that would be lost in a crash
+        journal.awaitSynced(journalEntries);
+        writeCheckpoint(directory, checkpoint);
+    }
+
+    /**
+     * Stops taking checkpoints and writes a final one.
+     */
+    @Override
+    public void close() throws IOException, InterruptedException {
+        checkpointScheduler.shutdown();
+        checkpointScheduler.awaitTermination(1, TimeUnit.MINUTES);
+        checkpoint();
+        journal.close();
+    }
+
+    private void lockForAdding() {
+        if (!tryLockForAdding()) {
+            long start = System.nanoTime();
+            lock.readLock().lock();
+            lockWaits.accept(System.nanoTime() - start);
+        }
+    }
+
+    // Unlike tryLock(), a timed tryLock() does not barge ahead of a waiting checkpoint, which could then wait for as long as builds are added
+    private boolean tryLockForAdding() {
+        try {
+            return lock.readLock().tryLock(0, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static String describeProject(String projectName) {
+        return projectName == null ? "all projects" : "project " + projectName;
+    }
+
+    private static byte[] serialize(Checkpoint checkpoint) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeObject(checkpoint);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeCheckpoint(Path directory, byte[] checkpoint) throws IOException {
+        Path tempFile = Files.createTempFile(directory, CHECKPOINT_FILE, ".tmp");
+        Files.write(tempFile, checkpoint);
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(tempFile, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static final class Checkpoint implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final Instant startTime;
+        private final Instant endTime;
+        private final String serverUrl;
+        private final String projectName;
+        private final long journalEntries;
+        private final SummaryAccumulators summaries;
+
+        private Checkpoint(Instant startTime, Instant endTime, String serverUrl, String projectName, long journalEntries, SummaryAccumulators summaries) {
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.serverUrl = serverUrl;
+            this.projectName = projectName;
+            this.journalEntries = journalEntries;
+            this.summaries = summaries;
+        }
+    }
+}
@@ -1,24 +1,99 @@
 package com.gradle.enterprise.summary.writer;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
 import com.gradle.enterprise.summary.InstantUtils;
 import com.gradle.enterprise.summary.metrics.ErrorAccumulator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.time.Instant;
 
-public class ErrorsWriter extends OutputWriter {
-    private boolean writtenErrors = false;
+/**
+ * Appends the errors to {@code errors_[date].jsonl} while they happen, one JSON object per line,
+ * so that they are not held in memory and the errors until an interruption are kept.
+ * The file is only created with the first error.
+ */
+public class ErrorsWriter {
+    private static final Logger logger = LoggerFactory.getLogger(ErrorsWriter.class);
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final Path file;
+    private OutputStream out;
+    private JsonGenerator generator;
+    private boolean closed = false;
+
+    public ErrorsWriter(Instant date) {
+        this.file = Paths.get("errors_" + InstantUtils.toString(date) + ".jsonl");
+    }
+
+    public synchronized void write(ErrorAccumulator.Error error) {
+        if (closed) {
+            return;
+        }
 
-    public void write(ErrorAccumulator errorAccumulator, Instant instant) {
         try {
-            // This is a hack to avoid writing the errors twice because of the shutdown hook.
-            if (!writtenErrors) {
-                writeStringToFile("errors_" + InstantUtils.toString(instant) + ".json", new ObjectMapper().writeValueAsString(errorAccumulator.getErrors()));
-                writtenErrors = true;
+            if (generator == null) {
+                open();
+            }
+            generator.writeStartObject();
+            generator.writeStringField("buildId", error.buildId);
+            generator.writeStringField("endpoint", error.endpoint);
+            generator.writeNumberField("code", error.code);
+            generator.writeStringField("problemType", error.problemType);
+            generator.writeStringField("detailMessage", error.detailMessage);
+            if (error.responseBody != null) {
+                generator.writeStringField("responseBody", error.responseBody);
             }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        } catch (IOException e) {
+            logger.error("Could not write the errors to {}.", file, e);
+            closed = true;
+        }
+    }
+
+    /**
+     * Completes the file, after which further errors are dropped.
+     * Called at the end of the run or by the shutdown hook, whichever comes first.
+     */
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        if (generator == null) {
+            return;
+        }
+        try {
+            generator.close();
+            out.close();
         } catch (IOException e) {
+            logger.error("Could not write the errors to {}.", file, e);
+        }
+    }
 
+    private void open() throws IOException {
+        if (file.toAbsolutePath().getParent() != null) {
+            file.toAbsolutePath().getParent().toFile().mkdirs();
         }
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        generator = JSON_FACTORY.createGenerator(out);
+        // One error per line instead of whitespace between the root values
+        generator.setRootValueSeparator(null);
     }
 }
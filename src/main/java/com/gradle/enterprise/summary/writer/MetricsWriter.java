@@ -0,0 +1,41 @@
+package com.gradle.enterprise.summary.writer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+import com.gradle.enterprise.summary.InstantUtils;
+import com.gradle.enterprise.summary.metrics.PipelineMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Instant;
+
+/**
+ * Writes the {@link PipelineMetrics} of the run next to its summaries.
+ */
+public class MetricsWriter extends OutputWriter {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsWriter.class);
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+
+    private boolean writtenMetrics = false;
+
+    public void write(PipelineMetrics metrics, Instant date) {
+        // Written once, either at the end of the run or by the shutdown hook
+        if (writtenMetrics) {
+            return;
+        }
+
+        try {
+            writeToFile("results/" + InstantUtils.toString(date) + "/metrics.json", false, out -> {
+                try (JsonGenerator generator = JSON_FACTORY.createGenerator(out).useDefaultPrettyPrinter()) {
+                    metrics.writeJson(generator);
+                }
+            });
+            writtenMetrics = true;
+        } catch (Exception e) {
+            logger.error("There was an error writing the metrics", e);
+        }
+    }
+}
@@ -1,17 +1,58 @@
 package com.gradle.enterprise.summary.writer;
 
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
 
 public abstract class OutputWriter {
+    private static final int BUFFER_SIZE = 64 * 1024;
 
-    protected void writeStringToFile(String fileName, String string) throws IOException {
-        Path filePath = Paths.get(fileName);
+    /**
+     * Streams the content into a temporary file next to the given one, which replaces it once the content is complete
+     * and on disk, so that the file is never left half written.
+     *
+     * @param gzip whether to compress the content, in which case {@code .gz} is appended to the file name
+     * @return the written file
+     */
+    protected Path writeToFile(String fileName, boolean gzip, Content content) throws IOException {
+        Path filePath = Paths.get(gzip ? fileName + ".gz" : fileName);
         if (filePath.getParent() != null) {
             filePath.getParent().toFile().mkdirs();
         }
-        Files.write(filePath, string.getBytes());
+
+        Path tempFile = filePath.resolveSibling(filePath.getFileName() + ".tmp");
+        try {
+            try (OutputStream out = newOutputStream(tempFile, gzip)) {
+                content.writeTo(out);
+            }
+            // Without it, the file may be renamed before its content reached the disk and be empty after a crash
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tempFile);
+            throw e;
+        }
+        Files.move(tempFile, filePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return filePath;
+    }
+
+    private static OutputStream newOutputStream(Path file, boolean gzip) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), BUFFER_SIZE);
+        return gzip ? new GZIPOutputStream(out, BUFFER_SIZE) : out;
+    }
+
+    @FunctionalInterface
+    protected interface Content {
+        void writeTo(OutputStream out) throws IOException;
     }
 }
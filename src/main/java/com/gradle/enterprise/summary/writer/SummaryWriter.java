@@ -1,30 +1,41 @@
 package com.gradle.enterprise.summary.writer;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
 import com.fasterxml.jackson.core.json.JsonWriteFeature;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.json.JsonMapper;
-import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.gradle.enterprise.summary.InstantUtils;
 import com.gradle.enterprise.summary.StreamTransform;
 import com.gradle.enterprise.summary.accumulator.SummaryAccumulator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.time.Instant;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+/**
+ * Writes the summaries as they are formatted, without building them in memory first.
+ */
 public class SummaryWriter extends OutputWriter {
     private static Logger logger = LoggerFactory.getLogger(SummaryWriter.class);
+    private static final JsonFactory JSON_FACTORY = JsonFactory.builder()
+        .enable(JsonWriteFeature.WRITE_NUMBERS_AS_STRINGS)
+        .disable(StreamWriteFeature.AUTO_CLOSE_TARGET)
+        .build();
+
     private final boolean shouldFormatDuration;
+    private final boolean gzip;
     private final List<StreamTransform<?>> transforms;
 
     private final Set<Class<?>> outputMap = new HashSet<>();
 
-    public SummaryWriter(boolean shouldFormatDuration, List<StreamTransform<?>> transforms) {
+    public SummaryWriter(boolean shouldFormatDuration, boolean gzip, List<StreamTransform<?>> transforms) {
         this.shouldFormatDuration = shouldFormatDuration;
+        this.gzip = gzip;
         this.transforms = transforms;
     }
 
@@ -34,8 +45,7 @@ public class SummaryWriter extends OutputWriter {
         }
 
         try {
-            String summary = formatSummary(summaryAccumulator, transforms);
-            writeStringToFile("results/" + InstantUtils.toString(date) + "/" + name + "_summary.json", summary);
+            writeToFile("results/" + InstantUtils.toString(date) + "/" + name + "_summary.json", gzip, out -> formatSummary(summaryAccumulator, transforms, out));
             outputMap.add(summaryAccumulator.getClass());
         } catch (Exception e) {
             System.err.println("There was an error writing the output for " + name);
@@ -44,12 +54,9 @@ public class SummaryWriter extends OutputWriter {
         }
     }
 
-    private <T extends SummaryAccumulator<?, ?, T>> String formatSummary(T accumulator, List<StreamTransform<?>> transforms) throws JsonProcessingException {
-        ObjectMapper mapper = JsonMapper.builder().enable(JsonWriteFeature.WRITE_NUMBERS_AS_STRINGS).build();
-        ObjectNode root = mapper.createObjectNode();
-
-        accumulator.getFormatter(mapper, root).formatSafe(accumulator, shouldFormatDuration, transforms);
-
-        return mapper.writerWithDefaultPrettyPrinter().writeValueAsString(root);
+    private <T extends SummaryAccumulator<?, ?, T>> void formatSummary(T accumulator, List<StreamTransform<?>> transforms, OutputStream out) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out).useDefaultPrettyPrinter()) {
+            accumulator.getFormatter(generator).formatUnchecked(accumulator, shouldFormatDuration, transforms);
+        }
     }
 }
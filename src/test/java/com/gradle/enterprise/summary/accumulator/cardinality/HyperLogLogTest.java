@@ -0,0 +1,119 @@
+package com.gradle.enterprise.summary.accumulator.cardinality;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+    private static final double DEFAULT_ERROR = 0.01;
+    // Estimates may be off by a few standard errors, the hashes are fixed so the tests are deterministic
+    private static final double TOLERATED_STANDARD_ERRORS = 3;
+
+    @Test
+    void defaultErrorTakesSixteenThousandRegisters() {
+        assertEquals(14, HyperLogLog.precisionFor(DEFAULT_ERROR));
+        assertEquals("approximate (16384 registers, 0.81% relative standard error)", DistinctCounters.approximate(DEFAULT_ERROR).toString());
+    }
+
+    @Test
+    void countsExactlyUpToAThousandValuesWithTheDefaultError() {
+        DistinctCounter counter = DistinctCounters.approximate(DEFAULT_ERROR).newCounter();
+        for (int i = 1; i <= 1024; i++) {
+            counter.add("user-" + i);
+            // Values added again are not counted twice
+            counter.add("user-" + (i + 1) / 2);
+            assertEquals(i, counter.count());
+        }
+        assertTrue(isSparse(counter));
+
+        // The registers take over from there, so that memory stays bounded
+        counter.add(null);
+        assertFalse(isSparse(counter));
+        assertWithinError(1025, counter.count(), HyperLogLog.relativeErrorOf(14));
+    }
+
+    @Test
+    void estimateStaysWithinTheErrorWhenSwitchingToRegisters() {
+        DistinctCounter counter = DistinctCounters.approximate(DEFAULT_ERROR).newCounter();
+        for (int i = 1; i <= 1024; i++) {
+            counter.add("build-" + i);
+        }
+        for (int i = 1025; i <= 5000; i++) {
+            counter.add("build-" + i);
+            assertWithinError(i, counter.count(), HyperLogLog.relativeErrorOf(14));
+        }
+    }
+
+    @Test
+    void estimatesLargeCountsWithinTheError() {
+        for (double relativeError : new double[]{0.1, 0.03, DEFAULT_ERROR}) {
+            int precision = HyperLogLog.precisionFor(relativeError);
+            assertTrue(HyperLogLog.relativeErrorOf(precision) <= relativeError);
+
+            DistinctCounter counter = DistinctCounters.approximate(relativeError).newCounter();
+            for (int i = 1; i <= 1_000_000; i++) {
+                counter.add("build-" + i);
+                if (i % 100_000 == 0) {
+                    assertWithinError(i, counter.count(), HyperLogLog.relativeErrorOf(precision));
+                }
+            }
+        }
+    }
+
+    @Test
+    void mergesWithoutLosingAccuracy() {
+        // Sparse into sparse, sparse into registers, registers into sparse and registers into registers
+        int[][] sizes = {{100, 200}, {100, 50_000}, {50_000, 100}, {50_000, 80_000}};
+        for (int[] size : sizes) {
+            DistinctCounter first = newCounter(0, size[0]);
+            DistinctCounter second = newCounter(size[0] / 2, size[0] / 2 + size[1]);
+            first.merge(second);
+
+            DistinctCounter all = newCounter(0, Math.max(size[0], size[0] / 2 + size[1]));
+            assertEquals(all.count(), first.count());
+            assertEquals(isSparse(all), isSparse(first));
+        }
+    }
+
+    @Test
+    void mergesExactCounts() {
+        DistinctCounter exact = DistinctCounters.exact().newCounter();
+        for (int i = 0; i < 2000; i++) {
+            exact.add("build-" + i);
+        }
+        DistinctCounter sketch = newCounter(1000, 3000);
+        sketch.merge(exact);
+
+        assertEquals(newCounter(0, 3000).count(), sketch.count());
+        assertThrows(IllegalArgumentException.class, () -> exact.merge(sketch));
+    }
+
+    @Test
+    void rejectsMergingSketchesOfAnotherPrecision() {
+        DistinctCounter sketch = DistinctCounters.approximate(DEFAULT_ERROR).newCounter();
+        DistinctCounter other = DistinctCounters.approximate(0.1).newCounter();
+
+        assertThrows(IllegalArgumentException.class, () -> sketch.merge(other));
+    }
+
+    private static DistinctCounter newCounter(int from, int to) {
+        DistinctCounter counter = DistinctCounters.approximate(DEFAULT_ERROR).newCounter();
+        for (int i = from; i < to; i++) {
+            counter.add("build-" + i);
+        }
+        return counter;
+    }
+
+    private static boolean isSparse(DistinctCounter counter) {
+        return counter.toString().contains("sparse=true");
+    }
+
+    private static void assertWithinError(long expected, long actual, double relativeStandardError) {
+        double relativeError = Math.abs(actual - expected) / (double) expected;
+        assertTrue(relativeError <= TOLERATED_STANDARD_ERRORS * relativeStandardError,
+            String.format("%d distinct values were estimated as %d, %.2f%% off", expected, actual, 100 * relativeError));
+    }
+}
@@ -0,0 +1,113 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DurationHistogramTest {
+    private static final double[] QUANTILES = {0.01, 0.25, 0.5, 0.75, 0.9, 0.99, 0.999, 1};
+    private static final double MAX_RELATIVE_ERROR = 0.0625;
+
+    @Test
+    void isEmptyWithoutDurations() {
+        DurationHistogram histogram = new DurationHistogram();
+
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    void keepsShortDurationsExactly() {
+        DurationHistogram histogram = new DurationHistogram();
+        long[] durations = new long[16];
+        for (int duration = 0; duration < 16; duration++) {
+            histogram.add(duration);
+            durations[duration] = duration;
+        }
+
+        for (double quantile : QUANTILES) {
+            assertEquals(exactPercentile(durations, quantile), histogram.getPercentile(quantile), "p" + quantile);
+        }
+    }
+
+    @Test
+    void reportsPercentilesWithinAboutSixPercent() {
+        Random random = new Random(42);
+        for (int run = 0; run < 20; run++) {
+            // Spread over many orders of magnitude, from milliseconds to days
+            long[] durations = new long[10_000];
+            DurationHistogram histogram = new DurationHistogram();
+            for (int i = 0; i < durations.length; i++) {
+                durations[i] = (long) Math.exp(random.nextDouble() * Math.log(10_000_000_000L));
+                histogram.add(durations[i]);
+            }
+            Arrays.sort(durations);
+
+            for (double quantile : QUANTILES) {
+                assertWithinError(exactPercentile(durations, quantile), histogram.getPercentile(quantile));
+            }
+            assertEquals(durations[durations.length - 1], histogram.getMax());
+        }
+    }
+
+    @Test
+    void reportsPercentilesOfEveryDurationWithinAboutSixPercent() {
+        for (long duration = 0; duration < 1_000_000; duration++) {
+            DurationHistogram histogram = new DurationHistogram();
+            histogram.add(duration);
+            // A second, larger duration, so that the percentile is not capped by the exact maximum
+            histogram.add(2_000_000);
+
+            assertWithinError(duration, histogram.getPercentile(0.5));
+        }
+    }
+
+    @Test
+    void clampsDurationsOutsideOfTheTrackedRange() {
+        DurationHistogram histogram = new DurationHistogram();
+        histogram.add(-5);
+        histogram.add(Long.MAX_VALUE);
+
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals((1L << 36) - 1, histogram.getMax());
+        assertWithinError(histogram.getMax(), histogram.getPercentile(1));
+    }
+
+    @Test
+    void mergesLikeAddingAllDurations() {
+        Random random = new Random(7);
+        DurationHistogram first = new DurationHistogram();
+        DurationHistogram second = new DurationHistogram();
+        DurationHistogram all = new DurationHistogram();
+        for (int i = 0; i < 5_000; i++) {
+            long duration = (long) Math.exp(random.nextDouble() * Math.log(1_000_000));
+            (i % 3 == 0 ? first : second).add(duration);
+            all.add(duration);
+        }
+        // The largest duration is only in the histogram that is merged
+        second.add(5_000_000);
+        all.add(5_000_000);
+
+        first.merge(second);
+
+        for (double quantile : QUANTILES) {
+            assertEquals(all.getPercentile(quantile), first.getPercentile(quantile), "p" + quantile);
+        }
+        assertEquals(5_000_000, first.getMax());
+    }
+
+    private static long exactPercentile(long[] sortedDurations, double quantile) {
+        int rank = Math.max(1, (int) Math.ceil(quantile * sortedDurations.length));
+        return sortedDurations[rank - 1];
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        double relativeError = expected == 0 ? actual : Math.abs(actual - expected) / (double) expected;
+        assertTrue(relativeError <= MAX_RELATIVE_ERROR,
+            String.format("The percentile %d was reported as %d, %.2f%% off", expected, actual, 100 * relativeError));
+    }
+}
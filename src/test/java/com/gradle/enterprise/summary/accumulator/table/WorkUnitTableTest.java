@@ -0,0 +1,117 @@
+package com.gradle.enterprise.summary.accumulator.table;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkUnitTableTest {
+    private static final long TREND_BUCKET_MILLIS = Duration.ofDays(1).toMillis();
+    private static final int MAX_TRACKED_NAMES = 20;
+
+    @Test
+    void tracksAllNamesWhenUnbounded() {
+        WorkUnitTable table = new WorkUnitTable(0, TREND_BUCKET_MILLIS);
+        int type = table.child(table.addRoot(), ":compileJava");
+        Map<String, Long> avoidableTimes = addExecutions(table, type, 10_000, new Random(1));
+
+        Map<String, Long> tracked = new HashMap<>();
+        for (int row = table.firstChild(type); row != WorkUnitTable.NO_ROW; row = table.nextSibling(row)) {
+            tracked.put(table.getName(row), table.getAvoidableTime(row));
+            assertEquals(0, table.getAvoidableTimeError(row));
+        }
+        assertEquals(avoidableTimes, tracked);
+    }
+
+    @Test
+    void keepsEveryNameAboveTheGuaranteedShare() {
+        for (int seed = 0; seed < 10; seed++) {
+            WorkUnitTable table = new WorkUnitTable(MAX_TRACKED_NAMES, TREND_BUCKET_MILLIS);
+            int type = table.child(table.addRoot(), "JavaCompile");
+            Map<String, Long> avoidableTimes = addExecutions(table, type, 20_000, new Random(seed));
+            long totalAvoidableTime = avoidableTimes.values().stream().mapToLong(Long::longValue).sum();
+
+            Map<String, Integer> tracked = new HashMap<>();
+            long estimatedAvoidableTime = 0;
+            for (int row = table.firstChild(type); row != WorkUnitTable.NO_ROW; row = table.nextSibling(row)) {
+                String name = table.getName(row);
+                long avoidableTime = avoidableTimes.get(name);
+                tracked.put(name, row);
+                estimatedAvoidableTime += table.getAvoidableTime(row);
+
+                // Overestimated by at most the error, which is at most the guaranteed share
+                assertTrue(table.getAvoidableTime(row) >= avoidableTime, name);
+                assertTrue(table.getAvoidableTime(row) - table.getAvoidableTimeError(row) <= avoidableTime, name);
+                assertTrue(table.getAvoidableTimeError(row) <= totalAvoidableTime / MAX_TRACKED_NAMES, name);
+            }
+            assertEquals(MAX_TRACKED_NAMES, tracked.size());
+            assertEquals(totalAvoidableTime, estimatedAvoidableTime);
+
+            int guaranteed = 0;
+            for (Map.Entry<String, Long> name : avoidableTimes.entrySet()) {
+                if (name.getValue() > totalAvoidableTime / MAX_TRACKED_NAMES) {
+                    assertTrue(tracked.containsKey(name.getKey()), name.getKey() + " with " + name.getValue() + " of " + totalAvoidableTime + " is not tracked");
+                    guaranteed++;
+                }
+            }
+            // The heavy names, while most of the names are light ones that were replaced
+            assertEquals(10, guaranteed);
+        }
+    }
+
+    @Test
+    void releasesTheNamesOfReplacedRows() {
+        WorkUnitTable table = new WorkUnitTable(MAX_TRACKED_NAMES, TREND_BUCKET_MILLIS);
+        int type = table.child(table.addRoot(), "JavaCompile");
+        addExecutions(table, type, 20_000, new Random(3));
+
+        int names = 0;
+        for (int row = table.firstChild(type); row != WorkUnitTable.NO_ROW; row = table.nextSibling(row)) {
+            assertTrue(table.getDictionary().find(table.getName(row)) != StringDictionary.NO_ID);
+            names++;
+        }
+        assertEquals(MAX_TRACKED_NAMES, names);
+        // Only the type and the tracked names are kept
+        int kept = 0;
+        for (int i = 0; i < 20_000; i++) {
+            if (table.getDictionary().find(nameOf(i)) != StringDictionary.NO_ID) {
+                kept++;
+            }
+        }
+        assertEquals(MAX_TRACKED_NAMES, kept);
+        assertTrue(table.getDictionary().find("JavaCompile") != StringDictionary.NO_ID);
+    }
+
+    /**
+     * Adds executions of a few heavy names among many light ones, like generated task names.
+     *
+     * @return the exact avoidable time of every name
+     */
+    private static Map<String, Long> addExecutions(WorkUnitTable table, int type, int executions, Random random) {
+        Map<String, Long> avoidableTimes = new HashMap<>();
+        for (int i = 0; i < executions; i++) {
+            String name;
+            long duration;
+            if (random.nextInt(4) == 0) {
+                name = nameOf(random.nextInt(10));
+                duration = 1_000 + random.nextInt(5_000);
+            } else {
+                name = nameOf(10 + random.nextInt(executions));
+                duration = 1 + random.nextInt(500);
+            }
+            boolean avoidable = random.nextInt(10) > 0;
+            table.addExecution(table.child(type, name), duration, 0, avoidable, !avoidable);
+            avoidableTimes.merge(name, avoidable ? duration : 0, Long::sum);
+        }
+        return avoidableTimes;
+    }
+
+    private static String nameOf(int index) {
+        return ":module-" + index + ":compileJava";
+    }
+}
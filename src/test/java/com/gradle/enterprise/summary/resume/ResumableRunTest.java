@@ -0,0 +1,71 @@
+package com.gradle.enterprise.summary.resume;
+
+import com.gradle.enterprise.summary.accumulator.SummarySettings;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ResumableRunTest {
+    private static final Duration SYNC_INTERVAL = Duration.ofMillis(10);
+    private static final Instant START_TIME = Instant.parse("2022-08-01T00:00:00Z");
+    private static final Instant END_TIME = Instant.parse("2022-08-02T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resumesTheRunOfTheSameServerAndProject() throws Exception {
+        startAndInterrupt("https://ge.example.com", "example");
+
+        try (ResumableRun run = ResumableRun.resume(directory, "https://ge.example.com", "example", SYNC_INTERVAL)) {
+            assertEquals("https://ge.example.com", run.getServerUrl());
+            assertEquals("example", run.getProjectName());
+            assertEquals(START_TIME, run.getStartTime());
+            assertEquals(END_TIME, run.getEndTime());
+        }
+    }
+
+    @Test
+    void resumesTheRunOfAllProjects() throws Exception {
+        startAndInterrupt("https://ge.example.com", null);
+
+        try (ResumableRun run = ResumableRun.resume(directory, "https://ge.example.com", null, SYNC_INTERVAL)) {
+            assertNull(run.getProjectName());
+        }
+    }
+
+    @Test
+    void rejectsAnotherServer() throws Exception {
+        startAndInterrupt("https://ge.example.com", "example");
+
+        IOException e = assertThrows(IOException.class, () -> ResumableRun.resume(directory, "https://other.example.com", "example", SYNC_INTERVAL));
+        assertEquals("The run in " + directory + " fetched the builds of https://ge.example.com for project example, not of https://other.example.com for project example", e.getMessage());
+    }
+
+    @Test
+    void rejectsAnotherProject() throws Exception {
+        startAndInterrupt("https://ge.example.com", "example");
+
+        assertThrows(IOException.class, () -> ResumableRun.resume(directory, "https://ge.example.com", "other", SYNC_INTERVAL));
+        assertThrows(IOException.class, () -> ResumableRun.resume(directory, "https://ge.example.com", null, SYNC_INTERVAL));
+    }
+
+    @Test
+    void rejectsAProjectForARunOfAllProjects() throws Exception {
+        startAndInterrupt("https://ge.example.com", null);
+
+        assertThrows(IOException.class, () -> ResumableRun.resume(directory, "https://ge.example.com", "example", SYNC_INTERVAL));
+    }
+
+    private void startAndInterrupt(String serverUrl, String projectName) throws Exception {
+        ResumableRun.start(directory, START_TIME, END_TIME, SummarySettings.defaults(), serverUrl, projectName, SYNC_INTERVAL).close();
+    }
+}